@@ -0,0 +1,88 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.util.HashUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off migration of blacklisted_tokens from full token strings to fixed-size tokenId keys.
+ *
+ * Older documents stored the whole JWT in a uniquely indexed "token" field. Those tokens carry no jti,
+ * so their key becomes the SHA-256 of the token string, matching VerifiedToken.getRevocationKey().
+ * The unique sparse tokenId index is created before anything else, so lookups and the one-time checks
+ * that rely on it never run without it. The old unique index is dropped next: it is not sparse, so new
+ * documents without "token" would collide on null. Runs during context startup, before the web server
+ * accepts requests; it is a no-op once nothing is left to migrate.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlacklistedTokenMigration {
+
+    private static final String COLLECTION = "blacklisted_tokens";
+    private static final String LEGACY_FIELD = "token";
+    private static final String TOKEN_ID_FIELD = "tokenId";
+
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void migrate() {
+        createTokenIdIndex();
+        dropLegacyIndex();
+
+        Query legacyDocuments = new Query(Criteria.where(LEGACY_FIELD).exists(true));
+        legacyDocuments.fields().include(LEGACY_FIELD);
+
+        int migrated = 0;
+        for (Document document : mongoTemplate.find(legacyDocuments, Document.class, COLLECTION)) {
+            String token = document.getString(LEGACY_FIELD);
+            Query byId = Query.query(Criteria.where("_id").is(document.get("_id")));
+            Update update = new Update().unset(LEGACY_FIELD);
+            if (token != null) {
+                update.set(TOKEN_ID_FIELD, HashUtils.sha256Hex(token));
+            }
+            try {
+                mongoTemplate.updateFirst(byId, update, COLLECTION);
+            } catch (DuplicateKeyException e) {
+                // The same token was revoked again under its tokenId; that document already covers it
+                mongoTemplate.remove(byId, COLLECTION);
+            }
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            log.info("Migrated {} blacklisted tokens to hashed tokenId keys", migrated);
+        }
+    }
+
+    private void createTokenIdIndex() {
+        // Same name and options as BlacklistedToken's @Indexed, so automatic index creation sees no conflict
+        mongoTemplate.indexOps(COLLECTION).createIndex(new Index()
+                .on(TOKEN_ID_FIELD, Sort.Direction.ASC)
+                .named(TOKEN_ID_FIELD)
+                .unique()
+                .sparse());
+    }
+
+    private void dropLegacyIndex() {
+        for (IndexInfo index : mongoTemplate.indexOps(COLLECTION).getIndexInfo()) {
+            if (index.isIndexForFields(List.of(LEGACY_FIELD))) {
+                mongoTemplate.indexOps(COLLECTION).dropIndex(index.getName());
+                log.info("Dropped legacy index {} on blacklisted_tokens", index.getName());
+            }
+        }
+    }
+}
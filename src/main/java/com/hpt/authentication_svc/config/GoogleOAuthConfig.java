@@ -17,13 +17,46 @@ public class GoogleOAuthConfig {
     private final String redirectUri;
     private final String tokenUri;
     private final String userInfoUri;
+    private final String jwksUri;
+
+    // ID token verification against Google's published signing keys
+    private final long jwksMinRefreshMillis;
+    private final long jwksDefaultMaxAgeMillis;
+    private final long idTokenClockSkewSeconds;
+
+    // HTTP client tuning for calls to Google, see WebClientConfig
+    private final int maxConnections;
+    private final int maxPendingAcquires;
+    private final long pendingAcquireTimeoutMillis;
+    private final long connectTimeoutMillis;
+    private final long responseTimeoutMillis;
+    private final long maxIdleTimeMillis;
+    private final boolean http2Enabled;
+    private final int maxRetries;
+    private final int circuitFailureThreshold;
+    private final long circuitOpenMillis;
 
     public GoogleOAuthConfig(Dotenv dotenv) {
         this.clientId = dotenv.get("GOOGLE_CLIENT_ID", "");
         this.clientSecret = dotenv.get("GOOGLE_CLIENT_SECRET", "");
         this.redirectUri = dotenv.get("GOOGLE_REDIRECT_URI", "http://localhost:3000/auth/google/callback");
-        this.tokenUri = "https://oauth2.googleapis.com/token";
-        this.userInfoUri = "https://www.googleapis.com/oauth2/v3/userinfo";
+        this.tokenUri = dotenv.get("GOOGLE_TOKEN_URI", "https://oauth2.googleapis.com/token");
+        this.userInfoUri = dotenv.get("GOOGLE_USERINFO_URI", "https://www.googleapis.com/oauth2/v3/userinfo");
+        this.jwksUri = dotenv.get("GOOGLE_JWKS_URI", "https://www.googleapis.com/oauth2/v3/certs");
+
+        this.jwksMinRefreshMillis = Long.parseLong(dotenv.get("GOOGLE_JWKS_MIN_REFRESH_MS", "60000"));
+        this.jwksDefaultMaxAgeMillis = Long.parseLong(dotenv.get("GOOGLE_JWKS_DEFAULT_MAX_AGE_MS", "3600000"));
+        this.idTokenClockSkewSeconds = Long.parseLong(dotenv.get("GOOGLE_ID_TOKEN_CLOCK_SKEW_SECONDS", "60"));
+
+        this.maxConnections = Integer.parseInt(dotenv.get("GOOGLE_HTTP_MAX_CONNECTIONS", "50"));
+        this.maxPendingAcquires = Integer.parseInt(dotenv.get("GOOGLE_HTTP_MAX_PENDING_ACQUIRES", "500"));
+        this.pendingAcquireTimeoutMillis = Long.parseLong(dotenv.get("GOOGLE_HTTP_PENDING_ACQUIRE_TIMEOUT_MS", "2000"));
+        this.connectTimeoutMillis = Long.parseLong(dotenv.get("GOOGLE_HTTP_CONNECT_TIMEOUT_MS", "2000"));
+        this.responseTimeoutMillis = Long.parseLong(dotenv.get("GOOGLE_HTTP_RESPONSE_TIMEOUT_MS", "5000"));
+        this.maxIdleTimeMillis = Long.parseLong(dotenv.get("GOOGLE_HTTP_MAX_IDLE_MS", "30000"));
+        this.http2Enabled = Boolean.parseBoolean(dotenv.get("GOOGLE_HTTP2_ENABLED", "false"));
+        this.maxRetries = Integer.parseInt(dotenv.get("GOOGLE_HTTP_MAX_RETRIES", "2"));
+        this.circuitFailureThreshold = Integer.parseInt(dotenv.get("GOOGLE_CIRCUIT_FAILURE_THRESHOLD", "5"));
+        this.circuitOpenMillis = Long.parseLong(dotenv.get("GOOGLE_CIRCUIT_OPEN_MS", "30000"));
     }
 }
-
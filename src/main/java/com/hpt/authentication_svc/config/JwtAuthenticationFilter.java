@@ -1,7 +1,9 @@
 package com.hpt.authentication_svc.config;
 
-import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
 import com.hpt.authentication_svc.service.JwtService;
+import com.hpt.authentication_svc.service.TokenRevocationCache;
 import com.hpt.authentication_svc.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -12,7 +14,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,7 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserService userService;
-    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final TokenRevocationCache tokenRevocationCache;
 
     @Override
     protected void doFilterInternal(
@@ -46,20 +47,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            // Check if token is blacklisted
-            if (blacklistedTokenRepository.existsByToken(jwt)) {
-                log.warn("Attempted to use blacklisted token");
-                filterChain.doFilter(request, response);
-                return;
-            }
+            // Verify signature and parse claims once; everything below reads from the result
+            VerifiedToken token = jwtService.verifyToken(jwt).orElse(null);
+
+            if (token != null && !token.isAccessToken()) {
+                log.warn("Attempted to authenticate with a refresh token");
+            } else if (token != null) {
+                // Check if token is blacklisted
+                if (tokenRevocationCache.isRevoked(token.getRevocationKey())) {
+                    log.warn("Attempted to use blacklisted token");
+                    filterChain.doFilter(request, response);
+                    return;
+                }
 
-            if (jwtService.validateToken(jwt)) {
-                userEmail = jwtService.extractUsername(jwt);
+                userEmail = token.getSubject();
 
                 if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userService.loadUserByUsername(userEmail);
+                    UserPrincipal userDetails = userService.resolvePrincipal(token, jwtService.isStatelessAuthentication());
 
-                    if (jwtService.isTokenValid(jwt, userDetails)) {
+                    if (token.isIssuedTo(userDetails) && !token.isExpired() && userDetails.isEnabled()
+                            && token.isCurrentVersion(userDetails.getTokenVersion())) {
                         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                                 userDetails,
                                 null,
@@ -77,4 +84,3 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 }
-
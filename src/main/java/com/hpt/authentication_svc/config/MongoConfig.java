@@ -1,5 +1,6 @@
 package com.hpt.authentication_svc.config;
 
+import com.hpt.authentication_svc.model.User;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
@@ -10,6 +11,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 
+import java.util.Collection;
+import java.util.List;
+
 @Configuration
 @EnableMongoAuditing
 public class MongoConfig extends AbstractMongoClientConfiguration {
@@ -25,6 +29,24 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         return "awad_email";
     }
 
+    /**
+     * Build the @Indexed and @CompoundIndex indexes at startup. This configuration replaces Boot's
+     * auto-configured mapping context, so spring.data.mongodb.auto-index-creation has no effect here.
+     * Unique emails, one-time refresh tokens and the TTL cleanups all depend on these indexes.
+     */
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
+    /**
+     * Scan the model package so every document's indexes are created at startup, not on first use.
+     */
+    @Override
+    protected Collection<String> getMappingBasePackages() {
+        return List.of(User.class.getPackageName());
+    }
+
     @Override
     @Bean
     public MongoClient mongoClient() {
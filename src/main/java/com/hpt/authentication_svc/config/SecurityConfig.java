@@ -1,6 +1,8 @@
 package com.hpt.authentication_svc.config;
 
 import com.hpt.authentication_svc.service.UserService;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +14,9 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -22,6 +26,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -30,6 +35,8 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final UserService userService;
+    private final Dotenv dotenv;
+    private final MeterRegistry meterRegistry;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -43,6 +50,11 @@ public class SecurityConfig {
                                 "/api/v1/auth/register",
                                 "/api/v1/auth/login",
                                 "/api/v1/auth/google",
+                                "/api/v1/auth/google/id-token",
+                                "/.well-known/jwks.json",
+                                "/api/v1/auth/introspect",
+                                "/api/v1/auth/introspect/batch",
+                                "/api/v1/auth/introspect/verdict",
                                 "/api/v1/auth/refresh-token",
                                 "/actuator/health",
                                 "/actuator/info"
@@ -100,6 +112,8 @@ public class SecurityConfig {
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // After a successful login, rehash passwords stored with an older algorithm or lower cost
+        authProvider.setUserDetailsPasswordService(userService);
         return authProvider;
     }
 
@@ -108,9 +122,51 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Hashing runs on a bounded pool so bcrypt cannot occupy every request thread during a login storm.
+     * Defaults to half the cores, leaving the rest for requests that do not hash.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int threads = Integer.parseInt(dotenv.get("PASSWORD_HASH_THREADS", String.valueOf(defaultThreads)));
+        return new BoundedPasswordEncoder(
+                versionedPasswordEncoder(),
+                threads,
+                Integer.parseInt(dotenv.get("PASSWORD_HASH_QUEUE_CAPACITY", String.valueOf(threads * 16))),
+                Long.parseLong(dotenv.get("PASSWORD_HASH_MAX_WAIT_MS", "5000")),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Encoder that stores hashes as {id}hash and verifies any supported format.
+     * New hashes use PASSWORD_HASH_ALGORITHM with the configured cost; older formats and lower costs are
+     * upgraded on the next successful login. Hashes written before the {id} prefix existed are bcrypt.
+     * PasswordHashCalibrator recommends cost settings for a target hash time on this host.
+     */
+    private PasswordEncoder versionedPasswordEncoder() {
+        String algorithm = dotenv.get("PASSWORD_HASH_ALGORITHM", "bcrypt");
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(
+                Integer.parseInt(dotenv.get("PASSWORD_BCRYPT_COST", "10")));
+        Argon2PasswordEncoder argon2 = new Argon2PasswordEncoder(
+                16,
+                32,
+                Integer.parseInt(dotenv.get("PASSWORD_ARGON2_PARALLELISM", "1")),
+                Integer.parseInt(dotenv.get("PASSWORD_ARGON2_MEMORY_KB", "16384")),
+                Integer.parseInt(dotenv.get("PASSWORD_ARGON2_ITERATIONS", "2")));
+
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", argon2
+        );
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unsupported PASSWORD_HASH_ALGORITHM: " + algorithm);
+        }
+
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegatingEncoder;
     }
 }
 
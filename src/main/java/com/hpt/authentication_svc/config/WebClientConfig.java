@@ -1,8 +1,15 @@
 package com.hpt.authentication_svc.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 /**
  * Configuration class for WebClient used in OAuth HTTP calls.
@@ -14,5 +21,44 @@ public class WebClientConfig {
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
-}
 
+    /**
+     * Connection pool dedicated to Google OAuth endpoints, so a slow Google cannot exhaust connections
+     * used elsewhere. Idle connections are kept alive for reuse and evicted in the background.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider googleOAuthConnectionProvider(GoogleOAuthConfig googleOAuthConfig) {
+        return ConnectionProvider.builder("google-oauth")
+                .maxConnections(googleOAuthConfig.getMaxConnections())
+                .pendingAcquireMaxCount(googleOAuthConfig.getMaxPendingAcquires())
+                .pendingAcquireTimeout(Duration.ofMillis(googleOAuthConfig.getPendingAcquireTimeoutMillis()))
+                .maxIdleTime(Duration.ofMillis(googleOAuthConfig.getMaxIdleTimeMillis()))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+    }
+
+    /**
+     * Shared client for Google OAuth calls, with connect and response timeouts so a hanging
+     * Google endpoint cannot hold a request indefinitely.
+     */
+    @Bean
+    public WebClient googleOAuthWebClient(WebClient.Builder webClientBuilder,
+                                          GoogleOAuthConfig googleOAuthConfig,
+                                          ConnectionProvider googleOAuthConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(googleOAuthConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) googleOAuthConfig.getConnectTimeoutMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(Duration.ofMillis(googleOAuthConfig.getResponseTimeoutMillis()));
+
+        if (googleOAuthConfig.isHttp2Enabled()) {
+            // Negotiated via ALPN; falls back to HTTP/1.1 when the server does not offer h2
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        // Clone so the shared builder bean is not modified
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -2,13 +2,16 @@ package com.hpt.authentication_svc.controller;
 
 import com.hpt.authentication_svc.dto.request.ChangePasswordRequest;
 import com.hpt.authentication_svc.dto.request.GoogleAuthRequest;
+import com.hpt.authentication_svc.dto.request.GoogleIdTokenRequest;
 import com.hpt.authentication_svc.dto.request.LoginRequest;
 import com.hpt.authentication_svc.dto.request.RefreshTokenRequest;
 import com.hpt.authentication_svc.dto.request.RegisterRequest;
 import com.hpt.authentication_svc.dto.request.UpgradeAccountRequest;
 import com.hpt.authentication_svc.dto.response.ApiResponse;
 import com.hpt.authentication_svc.dto.response.AuthResponse;
+import com.hpt.authentication_svc.dto.response.SessionResponse;
 import com.hpt.authentication_svc.dto.response.UserProfileResponse;
+import com.hpt.authentication_svc.model.UserPrincipal;
 import com.hpt.authentication_svc.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -17,13 +20,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 // No @CrossOrigin here - Gateway handles CORS centrally
@@ -33,16 +40,18 @@ public class AuthController {
     private final AuthService authService;
 
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<AuthResponse>> register(@Valid @RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> register(@Valid @RequestBody RegisterRequest request,
+                                                              HttpServletRequest httpRequest) {
+        AuthResponse response = authService.register(request, clientIp(httpRequest));
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(ApiResponse.success("User registered successfully", response));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                           HttpServletRequest httpRequest) {
+        AuthResponse response = authService.login(request, clientIp(httpRequest));
         return ResponseEntity.ok(ApiResponse.success("Login successful", response));
     }
 
@@ -67,6 +76,18 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success("Google login successful", response));
     }
 
+    /**
+     * Google sign-in with an ID token obtained by the frontend (Google Identity Services / One Tap).
+     * The token is verified locally against Google's cached signing keys; no authorization code
+     * exchange or userinfo call is made. Account creation and linking work as in /google.
+     */
+    @PostMapping("/google/id-token")
+    public ResponseEntity<ApiResponse<AuthResponse>> loginWithGoogleIdToken(
+            @Valid @RequestBody GoogleIdTokenRequest request) {
+        AuthResponse response = authService.loginWithGoogleIdToken(request);
+        return ResponseEntity.ok(ApiResponse.success("Google login successful", response));
+    }
+
     @PostMapping("/refresh-token")
     public ResponseEntity<ApiResponse<AuthResponse>> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
         AuthResponse response = authService.refreshToken(request);
@@ -74,10 +95,11 @@ public class AuthController {
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<ApiResponse<Void>> changePassword(@Valid @RequestBody ChangePasswordRequest request) {
+    public ResponseEntity<ApiResponse<Void>> changePassword(@Valid @RequestBody ChangePasswordRequest request,
+                                                            HttpServletRequest httpRequest) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
-        authService.changePassword(email, request);
+        authService.changePassword(email, request, clientIp(httpRequest));
         return ResponseEntity.ok(ApiResponse.success("Password changed successfully"));
     }
 
@@ -99,6 +121,28 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success("Logged out successfully"));
     }
 
+    @PostMapping("/logout-all")
+    public ResponseEntity<ApiResponse<Void>> logoutAll() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+        authService.logoutAllSessions(email);
+        return ResponseEntity.ok(ApiResponse.success("Logged out from all sessions successfully"));
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<ApiResponse<List<SessionResponse>>> getSessions() {
+        UserPrincipal principal = currentPrincipal();
+        List<SessionResponse> sessions = authService.getActiveSessions(principal.getId());
+        return ResponseEntity.ok(ApiResponse.success(sessions));
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<ApiResponse<Void>> revokeSession(@PathVariable String sessionId) {
+        UserPrincipal principal = currentPrincipal();
+        authService.revokeSession(principal.getId(), sessionId);
+        return ResponseEntity.ok(ApiResponse.success("Session revoked successfully"));
+    }
+
     @PutMapping("/upgrade-account")
     public ResponseEntity<ApiResponse<UserProfileResponse>> upgradeAccount(
             @Valid @RequestBody UpgradeAccountRequest request) {
@@ -107,5 +151,18 @@ public class AuthController {
         UserProfileResponse profile = authService.upgradeAccount(email, request);
         return ResponseEntity.ok(ApiResponse.success("Account upgraded successfully", profile));
     }
-}
 
+    private UserPrincipal currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (UserPrincipal) authentication.getPrincipal();
+    }
+
+    /**
+     * The caller's address. X-Forwarded-For is resolved by Tomcat (server.forward-headers-strategy),
+     * which only trusts entries appended by the configured internal proxies; reading the header
+     * here would let any client choose its own address.
+     */
+    private String clientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,65 @@
+package com.hpt.authentication_svc.controller;
+
+import com.hpt.authentication_svc.dto.request.BatchIntrospectionRequest;
+import com.hpt.authentication_svc.dto.request.IntrospectionRequest;
+import com.hpt.authentication_svc.dto.response.BatchIntrospectionResponse;
+import com.hpt.authentication_svc.dto.response.IntrospectionResponse;
+import com.hpt.authentication_svc.dto.response.VerdictResponse;
+import com.hpt.authentication_svc.service.TokenIntrospectionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Token introspection for the gateway and other services (RFC 7662 style).
+ * Responses are the bare introspection objects, not wrapped in ApiResponse.
+ * Callers must send INTROSPECTION_CLIENT_KEY in the X-Introspection-Key header; without a configured
+ * key every request is refused unless INTROSPECTION_ALLOW_UNAUTHENTICATED is set.
+ */
+@RestController
+@RequestMapping("/api/v1/auth/introspect")
+@RequiredArgsConstructor
+public class IntrospectionController {
+
+    private static final String CLIENT_KEY_HEADER = "X-Introspection-Key";
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    @PostMapping
+    public ResponseEntity<IntrospectionResponse> introspect(
+            @RequestHeader(value = CLIENT_KEY_HEADER, required = false) String clientKey,
+            @Valid @RequestBody IntrospectionRequest request) {
+        tokenIntrospectionService.authorizeClient(clientKey);
+        return ResponseEntity.ok(tokenIntrospectionService.introspect(request.getToken()));
+    }
+
+    /**
+     * Introspect several tokens in one call; results come back in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchIntrospectionResponse> introspectBatch(
+            @RequestHeader(value = CLIENT_KEY_HEADER, required = false) String clientKey,
+            @Valid @RequestBody BatchIntrospectionRequest request) {
+        tokenIntrospectionService.authorizeClient(clientKey);
+        return ResponseEntity.ok(BatchIntrospectionResponse.builder()
+                .results(tokenIntrospectionService.introspectBatch(request.getTokens()))
+                .build());
+    }
+
+    /**
+     * Issue a short-lived signed verdict for an active token; 401 if the token is not active,
+     * 503 while tokens are signed with the shared HS512 secret.
+     */
+    @PostMapping("/verdict")
+    public ResponseEntity<VerdictResponse> verdict(
+            @RequestHeader(value = CLIENT_KEY_HEADER, required = false) String clientKey,
+            @Valid @RequestBody IntrospectionRequest request) {
+        tokenIntrospectionService.authorizeClient(clientKey);
+        return ResponseEntity.ok(tokenIntrospectionService.issueVerdict(request.getToken()));
+    }
+}
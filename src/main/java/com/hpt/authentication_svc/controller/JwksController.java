@@ -0,0 +1,32 @@
+package com.hpt.authentication_svc.controller;
+
+import com.hpt.authentication_svc.service.JwtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Publishes the public keys our tokens are signed with (RFC 7517 JWK Set), so the gateway and other
+ * services can verify tokens locally and cache the keys instead of calling back into this service.
+ * Returned as a plain JWK Set, not wrapped in ApiResponse, so standard JWT libraries can consume it.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    private final JwtService jwtService;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(MAX_AGE).cachePublic())
+                .body(Map.of("keys", jwtService.getPublicJwks()));
+    }
+}
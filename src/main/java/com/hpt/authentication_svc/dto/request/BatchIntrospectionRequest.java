@@ -0,0 +1,19 @@
+package com.hpt.authentication_svc.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIntrospectionRequest {
+
+    @NotEmpty(message = "Tokens are required")
+    private List<String> tokens;
+}
@@ -0,0 +1,21 @@
+package com.hpt.authentication_svc.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO for Google sign-in with an ID token.
+ * Contains the credential returned to the frontend by Google Identity Services (e.g. One Tap).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoogleIdTokenRequest {
+
+    @NotBlank(message = "ID token is required")
+    private String idToken;
+}
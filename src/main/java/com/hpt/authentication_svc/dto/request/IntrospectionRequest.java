@@ -0,0 +1,17 @@
+package com.hpt.authentication_svc.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntrospectionRequest {
+
+    @NotBlank(message = "Token is required")
+    private String token;
+}
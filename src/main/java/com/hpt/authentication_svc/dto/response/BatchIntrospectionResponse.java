@@ -0,0 +1,20 @@
+package com.hpt.authentication_svc.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Introspection results in the same order as the submitted tokens.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIntrospectionResponse {
+
+    private List<IntrospectionResponse> results;
+}
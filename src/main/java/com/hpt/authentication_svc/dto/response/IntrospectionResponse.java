@@ -0,0 +1,52 @@
+package com.hpt.authentication_svc.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hpt.authentication_svc.model.AccountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Token introspection result in the style of RFC 7662.
+ * An inactive token is described by {"active": false} alone, without saying why.
+ * Only access tokens are ever active, so token_type is always "access_token" when present.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionResponse {
+
+    public static final String TOKEN_TYPE_ACCESS = "access_token";
+
+    private boolean active;
+
+    @JsonProperty("token_type")
+    private String tokenType;
+
+    private String sub;
+
+    private String username;
+
+    private Long exp; // seconds since the epoch
+
+    private Long iat;
+
+    private String jti;
+
+    private String uid;
+
+    @JsonProperty("account_type")
+    private AccountType accountType;
+
+    private List<String> authorities;
+
+    public static IntrospectionResponse inactive() {
+        return IntrospectionResponse.builder().active(false).build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.hpt.authentication_svc.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An active refresh session of the current user, as listed by GET /api/v1/auth/sessions.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionResponse {
+
+    private String id;
+    private String device;
+    private Instant createdAt;
+    private Instant lastUsedAt;
+    private Instant expiresAt;
+}
@@ -0,0 +1,21 @@
+package com.hpt.authentication_svc.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A signed authorization verdict. Callers may cache it until exp and verify it with the
+ * public keys published at /.well-known/jwks.json; verdicts are never signed with a shared secret.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerdictResponse {
+
+    private String verdict; // compact JWS with typ "verdict"
+
+    private long exp; // seconds since the epoch
+}
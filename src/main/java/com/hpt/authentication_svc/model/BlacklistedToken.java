@@ -20,14 +20,17 @@ public class BlacklistedToken {
     @Id
     private String id;
 
-    @Indexed(unique = true)
-    private String token;
+    // jti of the revoked token, or SHA-256 hex of the token string for tokens without a jti.
+    // Sparse so documents written before this field existed do not collide on null until migrated.
+    @Indexed(unique = true, sparse = true)
+    private String tokenId;
 
     private String userEmail;
 
     @Indexed(expireAfter = "0s")
     private Instant expiresAt;
 
+    @Indexed
     private Instant blacklistedAt;
 }
 
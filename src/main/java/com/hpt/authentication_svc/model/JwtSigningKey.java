@@ -0,0 +1,71 @@
+package com.hpt.authentication_svc.model;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One entry of the JWT key ring: an algorithm, the key that verifies it and, for the active key,
+ * the key that signs with it.
+ *
+ * For HS512 both keys are the same shared secret. For ES256 and EdDSA the verification key is public
+ * and is published at /.well-known/jwks.json so other services can verify tokens locally.
+ */
+@Getter
+@Builder
+public class JwtSigningKey {
+
+    private final String keyId; // kid header, null only for the legacy HS512 secret
+
+    private final SecureDigestAlgorithm<?, ?> algorithm;
+
+    private final Key signingKey; // null for verification-only keys
+
+    private final Key verificationKey;
+
+    public boolean canSign() {
+        return signingKey != null;
+    }
+
+    /**
+     * Whether this key verifies with a public key, so verifiers never hold anything that can sign.
+     */
+    public boolean isAsymmetric() {
+        return verificationKey instanceof PublicKey;
+    }
+
+    /**
+     * Sign the token being built with this key, adding its kid header.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (keyId != null) {
+            builder = builder.header().keyId(keyId).and();
+        }
+        // The algorithm and key types were matched when the key was loaded
+        return builder.signWith(signingKey, (SecureDigestAlgorithm) algorithm);
+    }
+
+    /**
+     * The public JWK for this key, or empty for shared secrets, which must never be published.
+     */
+    public Optional<Map<String, Object>> toPublicJwk() {
+        if (!isAsymmetric()) {
+            return Optional.empty();
+        }
+        return Optional.of(new LinkedHashMap<>(Jwks.builder()
+                .key((PublicKey) verificationKey)
+                .id(keyId)
+                .algorithm(algorithm.getId())
+                .publicKeyUse("sig")
+                .build()));
+    }
+}
@@ -0,0 +1,37 @@
+package com.hpt.authentication_svc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Failed-attempt state shared between nodes when LOGIN_RATE_LIMIT_STORE=mongo.
+ *
+ * Two kinds of document live here: per-window failure counters with id {@code <key>@<window>},
+ * and one lockout record per key with id {@code <key>}. Both expire through the TTL index.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "login_attempts")
+public class LoginAttempt {
+
+    @Id
+    private String id; // "account:<email>" or "ip:<address>", plus "@<window>" for counters
+
+    private int count; // failures in the window
+
+    private int lockouts; // lockouts so far, doubling the next one
+
+    private Instant lockedUntil;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,70 @@
+package com.hpt.authentication_svc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A refresh session: the chain of refresh tokens descending from one login.
+ * Only the current token may be used; presenting an earlier token of the session is treated
+ * as theft and revokes the session.
+ *
+ * JWT refresh tokens are matched by jti (currentTokenId), opaque ones by the SHA-256 of the token
+ * (tokenHash); the raw opaque token is never stored. The hashes of the most recent opaque tokens
+ * already used are kept in spentTokenHashes so a replay of any of them is recognised.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "refresh_token_families")
+@CompoundIndex(name = "user_sessions", def = "{'userId': 1, 'lastUsedAt': -1}")
+public class RefreshTokenFamily {
+
+    @Id
+    private String id; // fid claim of JWT refresh tokens, prefix of opaque ones
+
+    private String userId;
+
+    private String userEmail;
+
+    private String device; // User-Agent of the login
+
+    private long tokenVersion; // user's token version at login, checked for opaque tokens
+
+    private String currentTokenId;
+
+    private String tokenHash;
+
+    // Most recent last, capped at REFRESH_SESSION_SPENT_HISTORY entries
+    @Builder.Default
+    private List<String> spentTokenHashes = new ArrayList<>();
+
+    @Builder.Default
+    private boolean revoked = false;
+
+    private Instant createdAt;
+
+    private Instant lastUsedAt;
+
+    // Expiry of the current token; the document is removed by the TTL index once it passes
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+
+    public boolean isSpent(String tokenHash) {
+        return spentTokenHashes != null && spentTokenHashes.contains(tokenHash);
+    }
+
+    public boolean isActive() {
+        return !revoked && expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+}
@@ -45,6 +45,10 @@ public class User {
 
     private String profilePictureUrl; // Profile picture from OAuth provider
 
+    // Embedded in every issued token; incrementing it revokes all of the user's outstanding tokens
+    @Builder.Default
+    private long tokenVersion = 0;
+
     @CreatedDate
     private Instant createdAt;
 
@@ -0,0 +1,18 @@
+package com.hpt.authentication_svc.model;
+
+/**
+ * Closed projection of User with the fields token validation needs; the password hash and
+ * profile fields are neither read nor decoded. See UserPrincipal#from(UserAuthView).
+ */
+public interface UserAuthView {
+
+    String getId();
+
+    String getEmail();
+
+    Boolean getEnabled(); // wrappers: documents written before a field existed return null
+
+    AccountType getAccountType();
+
+    Long getTokenVersion();
+}
@@ -0,0 +1,89 @@
+package com.hpt.authentication_svc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authenticated user as seen by Spring Security.
+ * Carries the fields that token issuance and validation need, so they do not reload the User document.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class UserPrincipal implements UserDetails {
+
+    private final String id;
+
+    private final String email;
+
+    private final String password;
+
+    private final boolean enabled;
+
+    private final AccountType accountType;
+
+    private final long tokenVersion;
+
+    // Document the principal was loaded from, so login can build its response without a second query.
+    // Null for cached principals and principals rebuilt from token claims.
+    private final User user;
+
+    public static UserPrincipal from(User user) {
+        return UserPrincipal.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                // Handle OAuth users who may not have a password
+                .password(user.getPassword() != null ? user.getPassword() : "")
+                .enabled(user.isEnabled())
+                .accountType(user.getAccountType())
+                .tokenVersion(user.getTokenVersion())
+                .user(user)
+                .build();
+    }
+
+    /**
+     * Principal from the auth projection, for requests that are already authenticated.
+     * It has no password hash and no User document.
+     */
+    public static UserPrincipal from(UserAuthView view) {
+        return UserPrincipal.builder()
+                .id(view.getId())
+                .email(view.getEmail())
+                .password("")
+                // Same defaults as User for fields missing from older documents
+                .enabled(view.getEnabled() == null || view.getEnabled())
+                .accountType(view.getAccountType())
+                .tokenVersion(view.getTokenVersion() != null ? view.getTokenVersion() : 0)
+                .build();
+    }
+
+    /**
+     * Copy without the password hash, for principals that are cached or only used after authentication.
+     */
+    public UserPrincipal withoutPassword() {
+        return toBuilder().password("").user(null).build();
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    /**
+     * The account type as a role, e.g. ROLE_VIP, so endpoints can use hasRole("VIP").
+     */
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        if (accountType == null) {
+            return List.of();
+        }
+        return List.of(new SimpleGrantedAuthority("ROLE_" + accountType.name()));
+    }
+}
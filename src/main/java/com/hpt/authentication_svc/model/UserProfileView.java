@@ -0,0 +1,29 @@
+package com.hpt.authentication_svc.model;
+
+import java.time.Instant;
+
+/**
+ * Closed projection of User for profile responses, without the password hash or token state.
+ */
+public interface UserProfileView {
+
+    String getId();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getLastName();
+
+    Boolean getEnabled();
+
+    AccountType getAccountType();
+
+    AuthProvider getAuthProvider();
+
+    String getProfilePictureUrl();
+
+    Instant getCreatedAt();
+
+    Instant getUpdatedAt();
+}
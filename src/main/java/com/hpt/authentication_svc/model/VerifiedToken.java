@@ -0,0 +1,110 @@
+package com.hpt.authentication_svc.model;
+
+import com.hpt.authentication_svc.util.HashUtils;
+import io.jsonwebtoken.Claims;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+
+/**
+ * A JWT whose signature has already been verified.
+ * Produced once per request by JwtService so callers can read subject, expiry and jti
+ * without parsing the token again.
+ */
+@Getter
+@Builder
+public class VerifiedToken {
+
+    // Values of the token_use claim
+    public static final String USE_ACCESS = "access";
+    public static final String USE_REFRESH = "refresh";
+
+    private final String token;
+
+    private final String subject;
+
+    private final String tokenId; // jti claim
+
+    private final Instant issuedAt;
+
+    private final Instant expiresAt;
+
+    private final Long tokenVersion; // ver claim, null for tokens issued before it existed
+
+    // Principal claims used by stateless authentication; null for tokens issued before they existed
+    private final String userId;
+
+    private final Boolean enabled;
+
+    private final AccountType accountType;
+
+    private final String familyId; // fid claim of refresh tokens, null for access and legacy refresh tokens
+
+    private final String tokenUse; // token_use claim, "access" or "refresh"; null for tokens issued before it existed
+
+    private final Claims claims;
+
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.isBefore(Instant.now());
+    }
+
+    /**
+     * Fixed-size identifier used to blacklist this token: the jti, or for tokens issued
+     * before jti was added, the SHA-256 of the token string.
+     */
+    public String getRevocationKey() {
+        return tokenId != null ? tokenId : HashUtils.sha256Hex(token);
+    }
+
+    /**
+     * Whether the token may authenticate a request. Tokens without token_use predate the claim and
+     * count as access tokens unless they belong to a refresh token family.
+     */
+    public boolean isAccessToken() {
+        return tokenUse != null ? tokenUse.equals(USE_ACCESS) : familyId == null;
+    }
+
+    /**
+     * Whether the token was issued as a refresh token of a session.
+     * Refresh tokens from before sessions existed carry neither token_use nor fid; see RefreshTokenService.
+     */
+    public boolean isRefreshToken() {
+        return tokenUse != null ? tokenUse.equals(USE_REFRESH) : familyId != null;
+    }
+
+    /**
+     * Check if the token was issued to the given user
+     */
+    public boolean isIssuedTo(UserDetails userDetails) {
+        return subject != null && subject.equals(userDetails.getUsername());
+    }
+
+    /**
+     * Check the token against the user's current token version.
+     * Tokens without a version predate the claim and are only accepted until the first bump.
+     */
+    public boolean isCurrentVersion(long currentTokenVersion) {
+        return (tokenVersion != null ? tokenVersion : 0L) == currentTokenVersion;
+    }
+
+    /**
+     * Rebuild the principal from verified claims alone, without loading the user.
+     *
+     * @return The principal, or null if the token was issued without the principal claims
+     */
+    public UserPrincipal toPrincipal() {
+        if (subject == null || userId == null || enabled == null || accountType == null) {
+            return null;
+        }
+        return UserPrincipal.builder()
+                .id(userId)
+                .email(subject)
+                .password("")
+                .enabled(enabled)
+                .accountType(accountType)
+                .tokenVersion(tokenVersion != null ? tokenVersion : 0L)
+                .build();
+    }
+}
@@ -4,9 +4,19 @@ import com.hpt.authentication_svc.model.BlacklistedToken;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface BlacklistedTokenRepository extends MongoRepository<BlacklistedToken, String> {
 
-    boolean existsByToken(String token);
+    boolean existsByTokenId(String tokenId);
+
+    List<BlacklistedToken> findByTokenIdIn(Collection<String> tokenIds);
+
+    List<BlacklistedToken> findByExpiresAtAfter(Instant now);
+
+    List<BlacklistedToken> findByBlacklistedAtAfter(Instant since);
 }
 
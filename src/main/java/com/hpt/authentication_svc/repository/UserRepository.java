@@ -1,7 +1,10 @@
 package com.hpt.authentication_svc.repository;
 
 import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.model.UserAuthView;
+import com.hpt.authentication_svc.model.UserProfileView;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,8 +12,24 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
 
+    // Full document: login needs the password hash and builds its response from the rest
     Optional<User> findByEmail(String email);
 
-    boolean existsByEmail(String email);
-}
+    // Projections: only the fields of the returned interface are fetched
+    Optional<UserAuthView> findAuthViewByEmail(String email);
+
+    Optional<UserProfileView> findProfileViewByEmail(String email);
+
+    /**
+     * Existence check answered from the unique email index alone (a covered query):
+     * the filter and the projection only touch email, and _id is excluded. The index is built
+     * at startup by MongoConfig; MongoIndexCreationTest checks no document is read.
+     */
+    @Query(value = "{ 'email': ?0 }", fields = "{ '_id': 0, 'email': 1 }")
+    Optional<RegisteredEmail> findRegisteredEmail(String email);
 
+    interface RegisteredEmail {
+
+        String getEmail();
+    }
+}
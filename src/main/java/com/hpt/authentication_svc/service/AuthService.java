@@ -2,31 +2,38 @@ package com.hpt.authentication_svc.service;
 
 import com.hpt.authentication_svc.dto.request.ChangePasswordRequest;
 import com.hpt.authentication_svc.dto.request.GoogleAuthRequest;
+import com.hpt.authentication_svc.dto.request.GoogleIdTokenRequest;
 import com.hpt.authentication_svc.dto.request.LoginRequest;
 import com.hpt.authentication_svc.dto.request.RefreshTokenRequest;
 import com.hpt.authentication_svc.dto.request.RegisterRequest;
 import com.hpt.authentication_svc.dto.request.UpgradeAccountRequest;
 import com.hpt.authentication_svc.dto.response.AuthResponse;
-import com.hpt.authentication_svc.dto.response.GoogleTokenResponse;
 import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
+import com.hpt.authentication_svc.dto.response.SessionResponse;
 import com.hpt.authentication_svc.dto.response.UserProfileResponse;
 import com.hpt.authentication_svc.exception.BadRequestException;
+import com.hpt.authentication_svc.exception.ResourceNotFoundException;
 import com.hpt.authentication_svc.exception.UnauthorizedException;
 import com.hpt.authentication_svc.model.AccountType;
 import com.hpt.authentication_svc.model.AuthProvider;
 import com.hpt.authentication_svc.model.BlacklistedToken;
 import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.UserProfileView;
+import com.hpt.authentication_svc.model.VerifiedToken;
 import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -40,11 +47,14 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final BlacklistedTokenRepository blacklistedTokenRepository;
     private final GoogleOAuthService googleOAuthService;
+    private final TokenRevocationCache tokenRevocationCache;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptLimiter loginAttemptLimiter;
+    private final RegisteredEmailFilter registeredEmailFilter;
 
-    public AuthResponse register(RegisterRequest request) {
-        if (userService.existsByEmail(request.getEmail())) {
-            throw new BadRequestException("Email already exists");
-        }
+    public AuthResponse register(RegisterRequest request, String clientIp) {
+        // Before encoding: a blocked attempt must not cost a password hash
+        loginAttemptLimiter.checkAllowed(request.getEmail(), clientIp);
 
         User user = User.builder()
                 .email(request.getEmail())
@@ -54,31 +64,55 @@ public class AuthService {
                 .enabled(true)
                 .build();
 
-        user = userService.save(user);
+        try {
+            // The unique index on email rejects duplicates, saving a separate existence query
+            user = userService.save(user);
+        } catch (DuplicateKeyException e) {
+            // Counted so the endpoint cannot be used to probe for registered emails at full speed
+            loginAttemptLimiter.recordFailure(request.getEmail(), clientIp);
+            throw new BadRequestException("Email already exists");
+        }
+        registeredEmailFilter.add(user.getEmail());
 
-        UserDetails userDetails = userService.loadUserByUsername(user.getEmail());
+        UserPrincipal userDetails = UserPrincipal.from(user);
         String accessToken = jwtService.generateAccessToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        String refreshToken = refreshTokenService.issue(userDetails);
 
         return buildAuthResponse(user, accessToken, refreshToken);
     }
 
-    public AuthResponse login(LoginRequest request) {
+    public AuthResponse login(LoginRequest request, String clientIp) {
+        loginAttemptLimiter.checkAllowed(request.getEmail(), clientIp);
+
+        long startedNanos = System.nanoTime();
+        if (isCertainlyUnregistered(request.getEmail(), clientIp)) {
+            // Unknown email: skip the dummy hash, but answer no sooner than a real check
+            loginAttemptLimiter.recordFailure(request.getEmail(), clientIp);
+            registeredEmailFilter.awaitPasswordCheckDuration(startedNanos);
+            throw new UnauthorizedException("Invalid email or password");
+        }
+
+        Authentication authentication;
         try {
-            authenticationManager.authenticate(
+            authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             request.getEmail(),
                             request.getPassword()
                     )
             );
         } catch (BadCredentialsException e) {
+            registeredEmailFilter.recordPasswordCheck(System.nanoTime() - startedNanos);
+            loginAttemptLimiter.recordFailure(request.getEmail(), clientIp);
             throw new UnauthorizedException("Invalid email or password");
         }
+        registeredEmailFilter.recordPasswordCheck(System.nanoTime() - startedNanos);
+        loginAttemptLimiter.recordSuccess(request.getEmail());
 
-        User user = userService.findByEmail(request.getEmail());
-        UserDetails userDetails = userService.loadUserByUsername(user.getEmail());
+        // DaoAuthenticationProvider already loaded the user; reuse it instead of querying again
+        UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
+        User user = userDetails.getUser();
         String accessToken = jwtService.generateAccessToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        String refreshToken = refreshTokenService.issue(userDetails);
 
         return buildAuthResponse(user, accessToken, refreshToken);
     }
@@ -86,43 +120,55 @@ public class AuthService {
     public AuthResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
 
-        if (!jwtService.validateToken(refreshToken)) {
+        VerifiedToken verifiedToken = refreshTokenService.verify(refreshToken)
+                .orElseThrow(() -> new UnauthorizedException("Invalid or expired refresh token"));
+
+        String email = verifiedToken.getSubject();
+        User user = userService.findByEmail(email);
+
+        if (!verifiedToken.isCurrentVersion(user.getTokenVersion())) {
             throw new UnauthorizedException("Invalid or expired refresh token");
         }
 
-        String email = jwtService.extractUsername(refreshToken);
-        User user = userService.findByEmail(email);
-        UserDetails userDetails = userService.loadUserByUsername(email);
+        UserPrincipal userDetails = UserPrincipal.from(user);
 
+        // One-time use: the presented token stops working, and reusing it revokes its family
+        String newRefreshToken = refreshTokenService.rotate(verifiedToken, userDetails);
         String newAccessToken = jwtService.generateAccessToken(userDetails);
-        String newRefreshToken = jwtService.generateRefreshToken(userDetails);
 
         return buildAuthResponse(user, newAccessToken, newRefreshToken);
     }
 
-    public void changePassword(String email, ChangePasswordRequest request) {
+    public void changePassword(String email, ChangePasswordRequest request, String clientIp) {
         if (!request.getNewPassword().equals(request.getConfirmPassword())) {
             throw new BadRequestException("New password and confirm password do not match");
         }
 
+        // A stolen access token must not allow unlimited guesses at the current password
+        loginAttemptLimiter.checkAllowed(email, clientIp);
+
         User user = userService.findByEmail(email);
 
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            loginAttemptLimiter.recordFailure(email, clientIp);
             throw new BadRequestException("Current password is incorrect");
         }
+        loginAttemptLimiter.recordSuccess(email);
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        // Sign out every existing session in the same write as the password change
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userService.save(user);
     }
 
     public UserProfileResponse getCurrentUserProfile(String email) {
-        User user = userService.findByEmail(email);
+        UserProfileView user = userService.findProfileByEmail(email);
         return UserProfileResponse.builder()
                 .id(user.getId())
                 .email(user.getEmail())
                 .firstName(user.getFirstName())
                 .lastName(user.getLastName())
-                .enabled(user.isEnabled())
+                .enabled(user.getEnabled() == null || user.getEnabled())
                 .accountType(user.getAccountType())
                 .authProvider(user.getAuthProvider())
                 .profilePictureUrl(user.getProfilePictureUrl())
@@ -133,24 +179,62 @@ public class AuthService {
 
     public void logout(String token) {
         try {
-            String email = jwtService.extractUsername(token);
-            Instant expiresAt = jwtService.extractExpiration(token).toInstant();
+            // Invalid or expired tokens need no blacklisting, but we still consider logout successful
+            Optional<VerifiedToken> verifiedToken = jwtService.verifyToken(token);
+            if (verifiedToken.isEmpty()) {
+                return;
+            }
 
             BlacklistedToken blacklistedToken = BlacklistedToken.builder()
-                    .token(token)
-                    .userEmail(email)
-                    .expiresAt(expiresAt)
+                    .tokenId(verifiedToken.get().getRevocationKey())
+                    .userEmail(verifiedToken.get().getSubject())
+                    .expiresAt(verifiedToken.get().getExpiresAt())
                     .blacklistedAt(Instant.now())
                     .build();
 
             blacklistedTokenRepository.save(blacklistedToken);
+            tokenRevocationCache.add(blacklistedToken);
         } catch (Exception e) {
             // Token might be invalid, but we still consider logout successful
         }
     }
 
+    /**
+     * Revoke every access and refresh token issued to the user, on all devices.
+     */
+    public void logoutAllSessions(String email) {
+        userService.incrementTokenVersion(email);
+    }
+
+    /**
+     * List the user's active refresh sessions (one per login), most recently used first.
+     */
+    public List<SessionResponse> getActiveSessions(String userId) {
+        return refreshTokenService.listActiveSessions(userId).stream()
+                .map(session -> SessionResponse.builder()
+                        .id(session.getId())
+                        .device(session.getDevice())
+                        .createdAt(session.getCreatedAt())
+                        .lastUsedAt(session.getLastUsedAt())
+                        .expiresAt(session.getExpiresAt())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Revoke one refresh session; its refresh token stops working immediately.
+     * Access tokens already issued to it remain valid until they expire.
+     */
+    public void revokeSession(String userId, String sessionId) {
+        if (!refreshTokenService.revokeSession(userId, sessionId)) {
+            throw new ResourceNotFoundException("Session not found");
+        }
+    }
+
     public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokenRepository.existsByToken(token);
+        return jwtService.verifyToken(token)
+                .map(verifiedToken -> tokenRevocationCache.isRevoked(verifiedToken.getRevocationKey()))
+                .orElse(false);
     }
 
     public UserProfileResponse upgradeAccount(String email, UpgradeAccountRequest request) {
@@ -191,15 +275,33 @@ public class AuthService {
     public AuthResponse loginWithGoogle(GoogleAuthRequest request) {
         log.info("Processing Google OAuth login");
 
-        // Step 1: Exchange authorization code for access token
-        GoogleTokenResponse tokenResponse = googleOAuthService.exchangeCodeForToken(
+        // Steps 1-2: Exchange authorization code and read the user's profile,
+        // from the verified id_token when present, otherwise from the userinfo endpoint
+        GoogleUserInfo googleUserInfo = googleOAuthService.authenticate(
                 request.getCode(),
                 request.getRedirectUri()
         );
 
-        // Step 2: Get user info from Google
-        GoogleUserInfo googleUserInfo = googleOAuthService.getUserInfo(tokenResponse.getAccessToken());
+        return completeGoogleLogin(googleUserInfo);
+    }
+
+    /**
+     * Google sign-in with an ID token sent by the frontend (e.g. One Tap).
+     * The token is verified against cached Google keys, so no call to Google is made
+     * while the keys are warm.
+     */
+    public AuthResponse loginWithGoogleIdToken(GoogleIdTokenRequest request) {
+        log.info("Processing Google ID token login");
+
+        GoogleUserInfo googleUserInfo = googleOAuthService.verifyIdToken(request.getIdToken());
+
+        return completeGoogleLogin(googleUserInfo);
+    }
 
+    /**
+     * Create, link or update the local user for a verified Google profile and issue our tokens.
+     */
+    private AuthResponse completeGoogleLogin(GoogleUserInfo googleUserInfo) {
         // Step 3: Check if user exists
         Optional<User> existingUserOpt = userService.findByEmailOptional(googleUserInfo.getEmail());
 
@@ -213,11 +315,11 @@ public class AuthService {
         }
 
         // Step 4: Generate JWT tokens
-        UserDetails userDetails = userService.loadUserByUsername(user.getEmail());
+        UserPrincipal userDetails = UserPrincipal.from(user);
         String accessToken = jwtService.generateAccessToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        String refreshToken = refreshTokenService.issue(userDetails);
 
-        log.info("Google OAuth login successful for user: {}", user.getEmail());
+        log.info("Google login successful for user: {}", user.getEmail());
         return buildAuthResponse(user, accessToken, refreshToken);
     }
 
@@ -230,15 +332,22 @@ public class AuthService {
      */
     private User handleExistingUser(User user, GoogleUserInfo googleUserInfo) {
         if (user.getAuthProvider() == AuthProvider.GOOGLE) {
+            if (user.getProviderId() == null || !user.getProviderId().equals(googleUserInfo.getSub())) {
+                // Not the Google account this user is bound to: another account claiming the email,
+                // or a record without a provider id that this login would bind
+                requireVerifiedEmail(googleUserInfo);
+            }
             // User already registered with Google - just update profile if needed
             log.info("Existing Google user logging in: {}", user.getEmail());
             return updateGoogleUserProfile(user, googleUserInfo);
         } else if (user.getAuthProvider() == AuthProvider.LOCAL) {
             // User registered locally - link Google account
+            requireVerifiedEmail(googleUserInfo);
             log.info("Linking Google account to existing local user: {}", user.getEmail());
             return linkGoogleAccount(user, googleUserInfo);
         } else {
             // Unknown provider - treat as Google login
+            requireVerifiedEmail(googleUserInfo);
             log.warn("Unknown auth provider for user: {}, treating as Google login", user.getEmail());
             return linkGoogleAccount(user, googleUserInfo);
         }
@@ -248,6 +357,7 @@ public class AuthService {
      * Create a new user from Google OAuth information.
      */
     private User createGoogleUser(GoogleUserInfo googleUserInfo) {
+        requireVerifiedEmail(googleUserInfo);
         log.info("Creating new user from Google OAuth: {}", googleUserInfo.getEmail());
 
         User user = User.builder()
@@ -261,7 +371,19 @@ public class AuthService {
                 .accountType(AccountType.STANDARD)
                 .build();
 
-        return userService.save(user);
+        user = userService.save(user);
+        registeredEmailFilter.add(user.getEmail());
+        return user;
+    }
+
+    /**
+     * Accounts are matched by email, so only an email Google has verified may create or take over one.
+     */
+    private void requireVerifiedEmail(GoogleUserInfo googleUserInfo) {
+        if (!Boolean.TRUE.equals(googleUserInfo.getEmailVerified())) {
+            log.warn("Refusing Google sign-in with unverified email: {}", googleUserInfo.getEmail());
+            throw new BadRequestException("Google account email is not verified");
+        }
     }
 
     /**
@@ -314,6 +436,22 @@ public class AuthService {
         return user;
     }
 
+    /**
+     * Whether a login can be refused without a password check. A filter miss is confirmed with the
+     * index-only existence query, which is far cheaper than the dummy hash, so a user registered on
+     * another node since the filter's last refresh is never turned away.
+     */
+    private boolean isCertainlyUnregistered(String email, String clientIp) {
+        if (!registeredEmailFilter.shouldReject(email, loginAttemptLimiter.isSuspicious(clientIp))) {
+            return false;
+        }
+        if (userService.existsByEmail(email)) {
+            registeredEmailFilter.add(email);
+            return false;
+        }
+        return true;
+    }
+
     private AuthResponse buildAuthResponse(User user, String accessToken, String refreshToken) {
         return AuthResponse.builder()
                 .accessToken(accessToken)
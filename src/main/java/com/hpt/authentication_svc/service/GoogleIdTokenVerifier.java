@@ -0,0 +1,102 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.config.GoogleOAuthConfig;
+import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.security.Key;
+import java.util.Set;
+
+/**
+ * Verifies Google ID tokens locally against the cached keys from GoogleJwksProvider.
+ *
+ * Checks the RS256 signature, expiry, issuer and that the audience is our client ID, then reads the
+ * same profile fields the userinfo endpoint would return. No network call is made while the key for
+ * the token's key id is cached.
+ */
+@Slf4j
+@Service
+public class GoogleIdTokenVerifier {
+
+    private static final String GOOGLE_SIGNATURE_ALGORITHM = "RS256";
+    private static final Set<String> GOOGLE_ISSUERS = Set.of("accounts.google.com", "https://accounts.google.com");
+
+    private final GoogleOAuthConfig googleOAuthConfig;
+    private final JwtParser jwtParser;
+
+    public GoogleIdTokenVerifier(GoogleOAuthConfig googleOAuthConfig, GoogleJwksProvider googleJwksProvider) {
+        this.googleOAuthConfig = googleOAuthConfig;
+        this.jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        // Google signs with RS256 only; an RSA key would also verify RS512 or PS256
+                        if (!GOOGLE_SIGNATURE_ALGORITHM.equals(header.getAlgorithm())) {
+                            throw new UnsupportedJwtException("Unexpected Google ID token algorithm: "
+                                    + header.getAlgorithm());
+                        }
+                        if (header.getKeyId() == null) {
+                            throw new UnsupportedJwtException("Google ID token has no key id");
+                        }
+                        return googleJwksProvider.getKey(header.getKeyId())
+                                .orElseThrow(() -> new UnsupportedJwtException(
+                                        "Unknown Google signing key: " + header.getKeyId()));
+                    }
+                })
+                .clockSkewSeconds(googleOAuthConfig.getIdTokenClockSkewSeconds())
+                .build();
+    }
+
+    /**
+     * Verify a Google ID token and extract the user's profile from its claims.
+     *
+     * @param idToken The id_token issued by Google
+     * @return GoogleUserInfo built from the token's claims
+     * @throws BadRequestException if the token is invalid, expired or not issued for this client
+     */
+    public GoogleUserInfo verify(String idToken) {
+        Claims claims;
+        try {
+            claims = jwtParser.parseSignedClaims(idToken).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Invalid Google ID token: {}", e.getMessage());
+            throw new BadRequestException("Invalid Google ID token");
+        }
+
+        if (!GOOGLE_ISSUERS.contains(claims.getIssuer())) {
+            log.warn("Google ID token has unexpected issuer: {}", claims.getIssuer());
+            throw new BadRequestException("Invalid Google ID token");
+        }
+        String clientId = googleOAuthConfig.getClientId();
+        if (clientId == null || clientId.isBlank() || claims.getAudience() == null
+                || !claims.getAudience().contains(clientId)) {
+            log.warn("Google ID token was issued for another audience: {}", claims.getAudience());
+            throw new BadRequestException("Invalid Google ID token");
+        }
+        if (claims.get("email", String.class) == null) {
+            throw new BadRequestException("Google ID token does not contain an email");
+        }
+
+        Object emailVerified = claims.get("email_verified");
+        return GoogleUserInfo.builder()
+                .sub(claims.getSubject())
+                .email(claims.get("email", String.class))
+                // Older tokens carry email_verified as the string "true"
+                .emailVerified(emailVerified != null ? Boolean.valueOf(emailVerified.toString()) : null)
+                .name(claims.get("name", String.class))
+                .givenName(claims.get("given_name", String.class))
+                .familyName(claims.get("family_name", String.class))
+                .picture(claims.get("picture", String.class))
+                .locale(claims.get("locale", String.class))
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.config.GoogleOAuthConfig;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Google's ID token signing keys, fetched from the JWKS endpoint and held in memory by key id.
+ *
+ * Keys are refreshed in the background shortly before the max-age from the response's Cache-Control
+ * header runs out, so lookups on the login path never wait on Google. A token signed with a key id we
+ * have not seen yet triggers one immediate refresh, at most once per GOOGLE_JWKS_MIN_REFRESH_MS.
+ */
+@Slf4j
+@Service
+public class GoogleJwksProvider {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final GoogleOAuthConfig googleOAuthConfig;
+    private final WebClient googleOAuthWebClient;
+    private final ScheduledExecutorService scheduler;
+
+    // Not synchronized: a virtual thread blocked on the fetch inside a monitor would pin its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    // Earliest System.nanoTime() at which an unknown key id may trigger another fetch
+    private volatile long nextOnDemandRefreshNanos = System.nanoTime();
+
+    public GoogleJwksProvider(GoogleOAuthConfig googleOAuthConfig, WebClient googleOAuthWebClient) {
+        this.googleOAuthConfig = googleOAuthConfig;
+        this.googleOAuthWebClient = googleOAuthWebClient;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "google-jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.execute(this::refreshInBackground);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Look up a signing key by key id, fetching the key set again if the id is unknown.
+     */
+    public Optional<PublicKey> getKey(String keyId) {
+        PublicKey key = keys.get(keyId);
+        if (key == null && System.nanoTime() - nextOnDemandRefreshNanos >= 0) {
+            key = refreshForUnknownKey(keyId);
+        }
+        return Optional.ofNullable(key);
+    }
+
+    private PublicKey refreshForUnknownKey(String keyId) {
+        refreshLock.lock();
+        try {
+            // Another thread may have fetched the key while this one waited for the lock
+            PublicKey key = keys.get(keyId);
+            if (key != null || System.nanoTime() - nextOnDemandRefreshNanos < 0) {
+                return key;
+            }
+            refresh();
+        } catch (Exception e) {
+            log.error("Failed to fetch Google signing keys: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+        return keys.get(keyId);
+    }
+
+    /**
+     * Fetch the key set and replace the cached keys.
+     *
+     * @return Milliseconds until the key set should be fetched again
+     */
+    long refresh() {
+        refreshLock.lock();
+        try {
+            return fetchKeys();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private long fetchKeys() {
+        nextOnDemandRefreshNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(googleOAuthConfig.getJwksMinRefreshMillis());
+
+        ResponseEntity<String> response = googleOAuthWebClient
+                .get()
+                .uri(googleOAuthConfig.getJwksUri())
+                .retrieve()
+                .toEntity(String.class)
+                .block();
+        if (response == null || response.getBody() == null) {
+            throw new IllegalStateException("Empty response from " + googleOAuthConfig.getJwksUri());
+        }
+
+        JwkSet jwkSet = Jwks.setParser().build().parse(response.getBody());
+        Map<String, PublicKey> loaded = new HashMap<>();
+        for (Jwk<?> jwk : jwkSet.getKeys()) {
+            Key key = jwk.toKey();
+            if (jwk.getId() != null && key instanceof PublicKey publicKey) {
+                loaded.put(jwk.getId(), publicKey);
+            }
+        }
+        keys = Map.copyOf(loaded);
+
+        long maxAgeMillis = maxAgeMillis(response.getHeaders().getCacheControl());
+        log.info("Loaded {} Google signing keys, next refresh in {} s", loaded.size(), maxAgeMillis / 1000);
+        // Refresh a little before the cached copy expires so there is no window without current keys
+        return Math.max(googleOAuthConfig.getJwksMinRefreshMillis(), maxAgeMillis * 9 / 10);
+    }
+
+    private void refreshInBackground() {
+        long delayMillis;
+        try {
+            delayMillis = refresh();
+        } catch (Exception e) {
+            log.error("Failed to refresh Google signing keys: {}", e.getMessage());
+            delayMillis = googleOAuthConfig.getJwksMinRefreshMillis();
+        }
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::refreshInBackground, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long maxAgeMillis(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return googleOAuthConfig.getJwksDefaultMaxAgeMillis();
+    }
+}
@@ -4,7 +4,10 @@ import com.hpt.authentication_svc.config.GoogleOAuthConfig;
 import com.hpt.authentication_svc.dto.response.GoogleTokenResponse;
 import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
 import com.hpt.authentication_svc.exception.BadRequestException;
-import lombok.RequiredArgsConstructor;
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import com.hpt.authentication_svc.util.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -13,20 +16,93 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for handling Google OAuth 2.0 operations.
  * Implements the authorization code flow:
  * 1. Exchange authorization code for access token
  * 2. Use access token to retrieve user information
+ *
+ * Each step is built as a WebClient chain (circuit breaker, retries, timing) and waited for at a
+ * single point. Request threads are virtual when VIRTUAL_THREADS_ENABLED is set, so the wait parks
+ * the virtual thread rather than holding a platform thread.
+ *
+ * Calls go through the shared, pooled googleOAuthWebClient and a circuit breaker per endpoint.
+ * Only the userinfo GET is retried: an authorization code is single-use, so a token exchange that
+ * may have reached Google cannot be safely replayed.
+ *
+ * When the token response carries an id_token, the profile is read from it after local verification
+ * and the userinfo call is skipped.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class GoogleOAuthService {
 
+    private static final String REQUEST_TIMER = "auth.google.oauth.request";
+    private static final String TOKEN_ENDPOINT = "token";
+    private static final String USERINFO_ENDPOINT = "userinfo";
+
     private final GoogleOAuthConfig googleOAuthConfig;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient googleOAuthWebClient;
+    private final MeterRegistry meterRegistry;
+    private final GoogleIdTokenVerifier googleIdTokenVerifier;
+    private final CircuitBreaker tokenCircuitBreaker;
+    private final CircuitBreaker userInfoCircuitBreaker;
+
+    public GoogleOAuthService(GoogleOAuthConfig googleOAuthConfig,
+                              WebClient googleOAuthWebClient,
+                              MeterRegistry meterRegistry,
+                              GoogleIdTokenVerifier googleIdTokenVerifier) {
+        this.googleOAuthConfig = googleOAuthConfig;
+        this.googleOAuthWebClient = googleOAuthWebClient;
+        this.meterRegistry = meterRegistry;
+        this.googleIdTokenVerifier = googleIdTokenVerifier;
+
+        Duration openDuration = Duration.ofMillis(googleOAuthConfig.getCircuitOpenMillis());
+        this.tokenCircuitBreaker = new CircuitBreaker("Google token endpoint",
+                googleOAuthConfig.getCircuitFailureThreshold(), openDuration);
+        this.userInfoCircuitBreaker = new CircuitBreaker("Google userinfo endpoint",
+                googleOAuthConfig.getCircuitFailureThreshold(), openDuration);
+    }
+
+    /**
+     * Exchange an authorization code and resolve the user's Google profile.
+     * Reads the profile from the verified id_token when Google returns one; falls back to the
+     * userinfo endpoint otherwise, or when the id_token cannot be verified (e.g. keys unavailable).
+     *
+     * @param code The authorization code from Google's OAuth consent screen
+     * @param redirectUri The redirect URI used in the authorization request
+     * @return GoogleUserInfo containing user's profile information
+     */
+    public GoogleUserInfo authenticate(String code, String redirectUri) {
+        GoogleTokenResponse tokenResponse = exchangeCodeForToken(code, redirectUri);
+        if (tokenResponse.getIdToken() != null) {
+            try {
+                return googleIdTokenVerifier.verify(tokenResponse.getIdToken());
+            } catch (BadRequestException e) {
+                // The id_token came straight from Google over TLS, so userinfo is an equally trusted source
+                log.warn("Falling back to Google userinfo: {}", e.getMessage());
+            }
+        }
+        return getUserInfo(tokenResponse.getAccessToken());
+    }
+
+    /**
+     * Verify an ID token the frontend obtained from Google directly, without calling Google.
+     * Unlike {@link #authenticate(String, String)} there is no fallback: the token did not come from
+     * Google over our own connection, so its signature is the only proof of origin.
+     *
+     * @param idToken The Google ID token
+     * @return GoogleUserInfo built from the token's claims
+     */
+    public GoogleUserInfo verifyIdToken(String idToken) {
+        return googleIdTokenVerifier.verify(idToken);
+    }
 
     /**
      * Exchange authorization code for Google access token.
@@ -36,6 +112,20 @@ public class GoogleOAuthService {
      * @return GoogleTokenResponse containing access token and other token info
      */
     public GoogleTokenResponse exchangeCodeForToken(String code, String redirectUri) {
+        return tokenExchange(code, redirectUri).block();
+    }
+
+    /**
+     * Retrieve user information from Google using the access token.
+     * 
+     * @param accessToken The access token obtained from token exchange
+     * @return GoogleUserInfo containing user's profile information
+     */
+    public GoogleUserInfo getUserInfo(String accessToken) {
+        return userInfoRequest(accessToken).block();
+    }
+
+    private Mono<GoogleTokenResponse> tokenExchange(String code, String redirectUri) {
         log.info("Exchanging authorization code for Google access token");
 
         String effectiveRedirectUri = redirectUri != null ? redirectUri : googleOAuthConfig.getRedirectUri();
@@ -47,66 +137,99 @@ public class GoogleOAuthService {
         formData.add("redirect_uri", effectiveRedirectUri);
         formData.add("grant_type", "authorization_code");
 
-        try {
-            GoogleTokenResponse tokenResponse = webClientBuilder.build()
-                    .post()
-                    .uri(googleOAuthConfig.getTokenUri())
-                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                    .body(BodyInserters.fromFormData(formData))
-                    .retrieve()
-                    .bodyToMono(GoogleTokenResponse.class)
-                    .block();
-
-            if (tokenResponse == null || tokenResponse.getAccessToken() == null) {
-                log.error("Failed to get access token from Google");
-                throw new BadRequestException("Failed to authenticate with Google");
-            }
+        Mono<GoogleTokenResponse> request = googleOAuthWebClient
+                .post()
+                .uri(googleOAuthConfig.getTokenUri())
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData))
+                .retrieve()
+                .bodyToMono(GoogleTokenResponse.class);
+
+        return tokenCircuitBreaker.protect(timed(TOKEN_ENDPOINT, request))
+                .filter(tokenResponse -> tokenResponse.getAccessToken() != null)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Failed to get access token from Google");
+                    return new BadRequestException("Failed to authenticate with Google");
+                }))
+                .doOnNext(tokenResponse -> log.info("Successfully obtained Google access token"))
+                .onErrorMap(GoogleOAuthService::isUnmapped, e -> {
+                    if (e instanceof WebClientResponseException responseException) {
+                        log.error("Google token exchange failed: {} - {}",
+                                responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                        return new BadRequestException("Failed to authenticate with Google: " + e.getMessage());
+                    }
+                    log.error("Unexpected error during Google token exchange", e);
+                    return new BadRequestException("Failed to authenticate with Google");
+                });
+    }
 
-            log.info("Successfully obtained Google access token");
-            return tokenResponse;
+    private Mono<GoogleUserInfo> userInfoRequest(String accessToken) {
+        log.info("Retrieving user info from Google");
 
-        } catch (WebClientResponseException e) {
-            log.error("Google token exchange failed: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new BadRequestException("Failed to authenticate with Google: " + e.getMessage());
-        } catch (Exception e) {
-            log.error("Unexpected error during Google token exchange", e);
-            throw new BadRequestException("Failed to authenticate with Google");
-        }
+        Mono<GoogleUserInfo> request = googleOAuthWebClient
+                .get()
+                .uri(googleOAuthConfig.getUserInfoUri())
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve()
+                .bodyToMono(GoogleUserInfo.class);
+
+        return userInfoCircuitBreaker.protect(timed(USERINFO_ENDPOINT, request))
+                .retryWhen(Retry.backoff(googleOAuthConfig.getMaxRetries(), Duration.ofMillis(100))
+                        .maxBackoff(Duration.ofSeconds(1))
+                        .jitter(0.5)
+                        .filter(CircuitBreaker::isTransientFailure)
+                        .doBeforeRetry(signal -> log.warn("Retrying Google user info retrieval after: {}",
+                                signal.failure().toString()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .filter(userInfo -> userInfo.getEmail() != null)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Failed to get user info from Google");
+                    return new BadRequestException("Failed to get user information from Google");
+                }))
+                .doOnNext(userInfo -> log.info("Successfully retrieved Google user info for: {}", userInfo.getEmail()))
+                .onErrorMap(GoogleOAuthService::isUnmapped, e -> {
+                    if (e instanceof WebClientResponseException responseException) {
+                        log.error("Google user info retrieval failed: {} - {}",
+                                responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                    } else {
+                        log.error("Unexpected error during Google user info retrieval", e);
+                    }
+                    return new BadRequestException("Failed to get user information from Google");
+                });
     }
 
     /**
-     * Retrieve user information from Google using the access token.
-     * 
-     * @param accessToken The access token obtained from token exchange
-     * @return GoogleUserInfo containing user's profile information
+     * Record the latency of one attempt against a Google endpoint, tagged with its outcome.
      */
-    public GoogleUserInfo getUserInfo(String accessToken) {
-        log.info("Retrieving user info from Google");
-
-        try {
-            GoogleUserInfo userInfo = webClientBuilder.build()
-                    .get()
-                    .uri(googleOAuthConfig.getUserInfoUri())
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(GoogleUserInfo.class)
-                    .block();
-
-            if (userInfo == null || userInfo.getEmail() == null) {
-                log.error("Failed to get user info from Google");
-                throw new BadRequestException("Failed to get user information from Google");
-            }
-
-            log.info("Successfully retrieved Google user info for: {}", userInfo.getEmail());
-            return userInfo;
+    private <T> Mono<T> timed(String endpoint, Mono<T> request) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return request.doOnEach(signal -> {
+                if (signal.isOnComplete() || signal.isOnError()) {
+                    Timer.builder(REQUEST_TIMER)
+                            .description("Latency of calls to Google OAuth endpoints")
+                            .tag("endpoint", endpoint)
+                            .tag("outcome", outcome(signal.getThrowable()))
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        });
+    }
 
-        } catch (WebClientResponseException e) {
-            log.error("Google user info retrieval failed: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new BadRequestException("Failed to get user information from Google");
-        } catch (Exception e) {
-            log.error("Unexpected error during Google user info retrieval", e);
-            throw new BadRequestException("Failed to get user information from Google");
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
         }
+        return "error";
     }
-}
 
+    // Errors that already carry the right HTTP status for the caller
+    private static boolean isUnmapped(Throwable e) {
+        return !(e instanceof BadRequestException || e instanceof ServiceUnavailableException);
+    }
+}
@@ -0,0 +1,259 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.JwtSigningKey;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The keys JwtService signs and verifies with.
+ *
+ * Tokens are signed with the active key and carry its kid header. Verification looks the kid up in
+ * a map, so the cost does not grow with the number of keys and no key is ever tried blindly.
+ * Tokens without a kid, issued before key ids existed, are verified with the legacy JWT_SECRET.
+ *
+ * Instances are immutable; JwtService swaps in a new ring to change keys.
+ *
+ * Key ring file format (JWT_KEYRING_FILE, Java properties):
+ * <pre>
+ * active=2026-10
+ * keys.2026-10.algorithm=ES256
+ * keys.2026-10.private=&lt;Base64 PKCS#8&gt;
+ * keys.2026-10.public=&lt;Base64 X.509&gt;
+ * keys.2026-07.algorithm=HS512
+ * keys.2026-07.secret=&lt;Base64 secret&gt;
+ * </pre>
+ * Keys other than the active one only verify; their private part may be omitted.
+ *
+ * Rotating without forcing re-logins: add the new key as verification-only and wait until every node
+ * has reloaded and JWKS caches have expired; then make it active; remove the old key once the longest
+ * token lifetime (the refresh token's) has passed.
+ */
+public class JwtKeyRing {
+
+    private static final String ACTIVE_PROPERTY = "active";
+    private static final String KEY_PREFIX = "keys.";
+
+    private final JwtSigningKey activeKey;
+    private final Map<String, JwtSigningKey> keysById;
+    private final JwtSigningKey legacyKey;
+
+    JwtKeyRing(JwtSigningKey activeKey, Collection<JwtSigningKey> verificationKeys, JwtSigningKey legacyKey) {
+        if (activeKey == null || !activeKey.canSign()) {
+            throw new IllegalStateException("JWT key ring has no active signing key");
+        }
+        Map<String, JwtSigningKey> byId = new HashMap<>();
+        for (JwtSigningKey key : verificationKeys) {
+            if (key.getKeyId() != null) {
+                byId.put(key.getKeyId(), key);
+            }
+        }
+        if (activeKey.getKeyId() != null) {
+            byId.put(activeKey.getKeyId(), activeKey);
+        }
+        this.activeKey = activeKey;
+        this.keysById = Map.copyOf(byId);
+        this.legacyKey = legacyKey;
+    }
+
+    /**
+     * Build the ring from JWT_SIGNING_ALGORITHM and its keys.
+     *
+     * HS512 (the default) signs with JWT_SECRET. ES256 and EdDSA sign with JWT_SIGNING_PRIVATE_KEY
+     * (Base64 PKCS#8) and publish JWT_SIGNING_PUBLIC_KEY (Base64 X.509); JWT_SECRET, if still set,
+     * keeps verifying tokens issued before the switch until they expire.
+     */
+    static JwtKeyRing fromDotenv(Dotenv dotenv) {
+        String algorithm = dotenv.get("JWT_SIGNING_ALGORITHM", "HS512");
+        String keyId = dotenv.get("JWT_SIGNING_KEY_ID", null);
+        String secret = dotenv.get("JWT_SECRET");
+
+        if (Jwts.SIG.HS512.getId().equals(algorithm)) {
+            JwtSigningKey hmacKey = hmacKey(keyId, secret);
+            JwtSigningKey legacyKey = keyId == null ? hmacKey : hmacKey(null, secret);
+            return new JwtKeyRing(hmacKey, List.of(), legacyKey);
+        }
+
+        JwtSigningKey activeKey = asymmetricKey(algorithm, keyId,
+                dotenv.get("JWT_SIGNING_PRIVATE_KEY"), dotenv.get("JWT_SIGNING_PUBLIC_KEY"));
+        JwtSigningKey legacyKey = secret != null && !secret.isBlank() ? hmacKey(null, secret) : null;
+        return new JwtKeyRing(activeKey, List.of(), legacyKey);
+    }
+
+    /**
+     * Build the ring from the contents of a key ring file.
+     *
+     * @param content The file's contents
+     * @param legacyKey Key for tokens without a kid, or null to reject them
+     * @throws IllegalStateException if the file is malformed or its active key cannot sign
+     */
+    static JwtKeyRing fromProperties(String content, JwtSigningKey legacyKey) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Malformed JWT key ring: " + e.getMessage(), e);
+        }
+
+        String activeKeyId = properties.getProperty(ACTIVE_PROPERTY);
+        if (activeKeyId == null || activeKeyId.isBlank()) {
+            throw new IllegalStateException("JWT key ring has no '" + ACTIVE_PROPERTY + "' key id");
+        }
+
+        Set<String> keyIds = new TreeSet<>();
+        for (String name : properties.stringPropertyNames()) {
+            int fieldStart = name.lastIndexOf('.');
+            if (name.startsWith(KEY_PREFIX) && fieldStart > KEY_PREFIX.length()) {
+                keyIds.add(name.substring(KEY_PREFIX.length(), fieldStart));
+            }
+        }
+
+        JwtSigningKey activeKey = null;
+        List<JwtSigningKey> keys = new ArrayList<>();
+        for (String keyId : keyIds) {
+            String prefix = KEY_PREFIX + keyId + ".";
+            String algorithm = properties.getProperty(prefix + "algorithm", Jwts.SIG.HS512.getId());
+            JwtSigningKey key = Jwts.SIG.HS512.getId().equals(algorithm)
+                    ? hmacKey(keyId, properties.getProperty(prefix + "secret"))
+                    : asymmetricKey(algorithm, keyId,
+                            properties.getProperty(prefix + "private"), properties.getProperty(prefix + "public"));
+            keys.add(key);
+            if (keyId.equals(activeKeyId.trim())) {
+                activeKey = key;
+            }
+        }
+        if (activeKey == null) {
+            throw new IllegalStateException("Active key '" + activeKeyId + "' is not defined in the JWT key ring");
+        }
+        return new JwtKeyRing(activeKey, keys, legacyKey);
+    }
+
+    static JwtSigningKey hmacKey(String keyId, String secret) {
+        Key key = JwtService.createSignInKey(secret);
+        return JwtSigningKey.builder()
+                .keyId(keyId)
+                .algorithm(Jwts.SIG.HS512)
+                .signingKey(key)
+                .verificationKey(key)
+                .build();
+    }
+
+    /**
+     * Load an asymmetric key pair. Without a private key the result can only verify.
+     * The kid defaults to the RFC 7638 thumbprint of the public key.
+     */
+    static JwtSigningKey asymmetricKey(String algorithmId, String keyId, String privateKeyBase64,
+                                       String publicKeyBase64) {
+        SecureDigestAlgorithm<?, ?> algorithm = Jwts.SIG.get().get(algorithmId);
+        if (!(algorithm instanceof SignatureAlgorithm)) {
+            throw new IllegalStateException("Unsupported JWT signing algorithm: " + algorithmId);
+        }
+        if (publicKeyBase64 == null || publicKeyBase64.isBlank()) {
+            throw new IllegalStateException("Public key is required for " + algorithmId);
+        }
+
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyFactoryAlgorithm(algorithmId));
+            PublicKey publicKey = keyFactory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(publicKeyBase64.trim())));
+            PrivateKey privateKey = privateKeyBase64 == null || privateKeyBase64.isBlank() ? null
+                    : keyFactory.generatePrivate(
+                            new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyBase64.trim())));
+
+            JwtSigningKey key = JwtSigningKey.builder()
+                    .keyId(keyId != null ? keyId : Jwks.builder().key(publicKey).idFromThumbprint().build().getId())
+                    .algorithm(algorithm)
+                    .signingKey(privateKey)
+                    .verificationKey(publicKey)
+                    .build();
+            if (key.canSign()) {
+                checkKeyPair(key);
+            }
+            return key;
+        } catch (GeneralSecurityException | JwtException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + algorithmId + " key: " + e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+
+    public JwtSigningKey getActiveKey() {
+        return activeKey;
+    }
+
+    /**
+     * The key that verifies a token with this header, chosen by kid.
+     *
+     * @throws UnsupportedJwtException if the kid is unknown or the header's algorithm is not the key's
+     */
+    public Key locate(JwsHeader header) {
+        String keyId = header.getKeyId();
+        JwtSigningKey key = keyId != null ? keysById.get(keyId) : legacyKey;
+        if (key == null) {
+            throw new UnsupportedJwtException(keyId != null ? "Unknown signing key id: " + keyId : "Token has no key id");
+        }
+        // Never let the token choose a different algorithm for a known key
+        if (!key.getAlgorithm().getId().equals(header.getAlgorithm())) {
+            throw new UnsupportedJwtException("Algorithm " + header.getAlgorithm() + " does not match key " + keyId);
+        }
+        return key.getVerificationKey();
+    }
+
+    /**
+     * Public JWKs of every asymmetric key in the ring, for /.well-known/jwks.json.
+     */
+    public List<Map<String, Object>> getPublicJwks() {
+        return keysById.values().stream()
+                .map(JwtSigningKey::toPublicJwk)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private static String keyFactoryAlgorithm(String algorithmId) {
+        if (algorithmId.startsWith("ES")) {
+            return "EC";
+        }
+        if (Jwts.SIG.EdDSA.getId().equals(algorithmId)) {
+            return "EdDSA";
+        }
+        return "RSA";
+    }
+
+    /**
+     * Sign and verify a probe token so a mismatched key pair or wrong curve fails startup.
+     */
+    private static void checkKeyPair(JwtSigningKey key) {
+        String probe = key.sign(Jwts.builder().subject("key-check")).compact();
+        Jwts.parser()
+                .verifyWith((PublicKey) key.getVerificationKey())
+                .build()
+                .parseSignedClaims(probe);
+    }
+}
@@ -1,45 +1,166 @@
 package com.hpt.authentication_svc.service;
 
+import com.hpt.authentication_svc.model.AccountType;
+import com.hpt.authentication_svc.model.JwtSigningKey;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
 import io.github.cdimascio.dotenv.Dotenv;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.DecodingException;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 public class JwtService {
 
-    private final String jwtSecret;
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ENABLED_CLAIM = "enabled";
+    public static final String ACCOUNT_TYPE_CLAIM = "acct";
+    public static final String FAMILY_ID_CLAIM = "fid";
+    public static final String AUTHORITIES_CLAIM = "auth";
+    public static final String TOKEN_REFERENCE_CLAIM = "tid";
+    // What a token may be used for, so a refresh token is never accepted as an access token or vice versa
+    public static final String TOKEN_USE_CLAIM = "token_use";
+
+    // typ header of authorization verdicts; they are never accepted as credentials
+    public static final String VERDICT_TYPE = "verdict";
+
+    // HS512 needs a key at least as long as its 512-bit digest
+    private static final int MIN_SECRET_BYTES = 64;
+    private static final int MIN_DISTINCT_SECRET_BYTES = 16;
+
+    // Built once at startup: decoding keys and configuring a parser per call showed up in profiles.
+    // JwtParser is immutable and resolves keys through the current ring, which is swapped whole on reload.
+    private volatile JwtKeyRing keyRing;
+    private final JwtParser jwtParser;
+    // Optional hot-reloaded key ring file, see JwtKeyRing for the format
+    private final Path keyRingFile;
+    private final long keyRingReloadIntervalMillis;
+    private final JwtSigningKey legacyKey;
+    private volatile String loadedKeyRing;
+    // A lock rather than synchronized, so a virtual thread reading the file does not pin its carrier
+    private final ReentrantLock keyRingLock = new ReentrantLock();
+    private ScheduledExecutorService keyRingReloader;
     private final long accessTokenExpiration;
     private final long refreshTokenExpiration;
+    // Opt-in: authenticate requests from verified claims alone, without loading the user
+    private final boolean statelessAuthentication;
 
     public JwtService(Dotenv dotenv) {
-        this.jwtSecret = dotenv.get("JWT_SECRET");
+        String keyRingFile = dotenv.get("JWT_KEYRING_FILE", null);
+        this.keyRingFile = keyRingFile != null && !keyRingFile.isBlank() ? Path.of(keyRingFile) : null;
+        this.keyRingReloadIntervalMillis = Long.parseLong(dotenv.get("JWT_KEYRING_RELOAD_INTERVAL_MS", "10000"));
+        if (this.keyRingFile != null) {
+            String secret = dotenv.get("JWT_SECRET");
+            this.legacyKey = secret != null && !secret.isBlank() ? JwtKeyRing.hmacKey(null, secret) : null;
+            loadKeyRing();
+        } else {
+            this.legacyKey = null;
+            this.keyRing = JwtKeyRing.fromDotenv(dotenv);
+        }
+        this.jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return keyRing.locate(header);
+                    }
+                })
+                .build();
         this.accessTokenExpiration = Long.parseLong(dotenv.get("JWT_ACCESS_TOKEN_EXPIRATION", "3600000"));
         this.refreshTokenExpiration = Long.parseLong(dotenv.get("JWT_REFRESH_TOKEN_EXPIRATION", "86400000"));
+        this.statelessAuthentication = Boolean.parseBoolean(dotenv.get("JWT_STATELESS_AUTH_ENABLED", "false"));
+    }
+
+    @PostConstruct
+    void start() {
+        if (keyRingFile == null) {
+            return;
+        }
+        keyRingReloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-keyring-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keyRingReloader.scheduleWithFixedDelay(this::reloadKeyRingIfChanged,
+                keyRingReloadIntervalMillis, keyRingReloadIntervalMillis, TimeUnit.MILLISECONDS);
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    @PreDestroy
+    void stop() {
+        if (keyRingReloader != null) {
+            keyRingReloader.shutdownNow();
+        }
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Re-read the key ring file and swap in the new ring if its contents changed.
+     * A file that fails to load is logged and ignored, keeping the current keys.
+     *
+     * @return true if a new ring was installed
+     */
+    boolean reloadKeyRingIfChanged() {
+        try {
+            return loadKeyRing();
+        } catch (RuntimeException e) {
+            log.error("Failed to reload JWT key ring from {}, keeping current keys: {}", keyRingFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean loadKeyRing() {
+        keyRingLock.lock();
+        try {
+            String content;
+            try {
+                content = Files.readString(keyRingFile);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read JWT key ring " + keyRingFile, e);
+            }
+            if (content.equals(loadedKeyRing)) {
+                return false;
+            }
+            keyRing = JwtKeyRing.fromProperties(content, legacyKey);
+            loadedKeyRing = content;
+            log.info("Loaded JWT key ring with {} keys, signing with {}", keyRing.size(), keyRing.getActiveKey().getKeyId());
+            return true;
+        } finally {
+            keyRingLock.unlock();
+        }
     }
 
     public String generateAccessToken(UserDetails userDetails) {
@@ -47,35 +168,102 @@ public class JwtService {
     }
 
     public String generateAccessToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, accessTokenExpiration);
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put(TOKEN_USE_CLAIM, VerifiedToken.USE_ACCESS);
+        return buildToken(claims, userDetails, accessTokenExpiration);
     }
 
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshTokenExpiration);
+    /**
+     * Generate a refresh token belonging to a refresh-token family, see RefreshTokenService.
+     *
+     * @param familyId The family's id, stored in the fid claim
+     * @param tokenId The jti the family records as its current token
+     */
+    public String generateRefreshToken(UserDetails userDetails, String familyId, String tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(FAMILY_ID_CLAIM, familyId);
+        claims.put(TOKEN_USE_CLAIM, VerifiedToken.USE_REFRESH);
+        return buildToken(claims, userDetails, refreshTokenExpiration, tokenId);
     }
 
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
-        return Jwts.builder()
-                .claims(extraClaims)
+        return buildToken(extraClaims, userDetails, expiration, UUID.randomUUID().toString());
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration,
+                              String tokenId) {
+        // JwtBuilder is mutable, so only the key ring is shared between calls
+        long now = System.currentTimeMillis();
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        if (userDetails instanceof UserPrincipal principal) {
+            // Everything JwtAuthenticationFilter needs to authenticate without a user lookup
+            claims.put(USER_ID_CLAIM, principal.getId());
+            claims.put(ENABLED_CLAIM, principal.isEnabled());
+            claims.put(ACCOUNT_TYPE_CLAIM, principal.getAccountType() != null ? principal.getAccountType().name() : null);
+            claims.put(TOKEN_VERSION_CLAIM, principal.getTokenVersion());
+        }
+        JwtBuilder builder = Jwts.builder()
+                .claims(claims)
+                .id(tokenId)
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS512)
-                .compact();
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration));
+        return keyRing.getActiveKey().sign(builder).compact();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    /**
+     * Sign an authorization verdict for a token that has passed every check, for the gateway to cache.
+     * Verdicts carry the typ header "verdict" and are rejected wherever a token is expected.
+     * They are only signed with asymmetric keys: a gateway verifying them with the HS512 secret could
+     * also mint access tokens.
+     *
+     * @param token The verified token the verdict vouches for, referenced by its revocation key
+     * @param expiresAt End of the verdict's validity window
+     */
+    public String generateVerdict(UserPrincipal principal, VerifiedToken token, Instant expiresAt) {
+        JwtSigningKey signingKey = keyRing.getActiveKey();
+        if (!signingKey.isAsymmetric()) {
+            throw new IllegalStateException("Verdicts require an asymmetric JWT signing key");
+        }
+        JwtBuilder builder = Jwts.builder()
+                .header().type(VERDICT_TYPE).and()
+                .claim(USER_ID_CLAIM, principal.getId())
+                .claim(ACCOUNT_TYPE_CLAIM, principal.getAccountType() != null ? principal.getAccountType().name() : null)
+                .claim(AUTHORITIES_CLAIM, principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                .claim(TOKEN_REFERENCE_CLAIM, token.getRevocationKey())
+                .id(UUID.randomUUID().toString())
+                .subject(principal.getUsername())
+                .issuedAt(new Date())
+                .expiration(Date.from(expiresAt));
+        return signingKey.sign(builder).compact();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verify the signature and parse the claims of a token exactly once.
+     * This is the only way tokens are read, so every caller gets the same key and type checks;
+     * read subject, expiry and jti from the returned object.
+     *
+     * @param token The compact JWT string
+     * @return The verified token, or empty if the token is invalid or expired
+     */
+    public Optional<VerifiedToken> verifyToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSignInKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            Claims claims = extractAllClaims(token);
+            Number tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Number.class);
+            return Optional.of(VerifiedToken.builder()
+                    .token(token)
+                    .subject(claims.getSubject())
+                    .tokenId(claims.getId())
+                    .issuedAt(claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null)
+                    .expiresAt(claims.getExpiration() != null ? claims.getExpiration().toInstant() : null)
+                    .tokenVersion(tokenVersion != null ? tokenVersion.longValue() : null)
+                    .userId(claims.get(USER_ID_CLAIM, String.class))
+                    .familyId(claims.get(FAMILY_ID_CLAIM, String.class))
+                    .tokenUse(claims.get(TOKEN_USE_CLAIM, String.class))
+                    .enabled(claims.get(ENABLED_CLAIM, Boolean.class))
+                    .accountType(parseAccountType(claims.get(ACCOUNT_TYPE_CLAIM, String.class)))
+                    .claims(claims)
+                    .build());
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -87,32 +275,88 @@ public class JwtService {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return Optional.empty();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static AccountType parseAccountType(String accountType) {
+        if (accountType == null) {
+            return null;
+        }
+        try {
+            return AccountType.valueOf(accountType);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Jws<Claims> jws = jwtParser.parseSignedClaims(token);
+        if (VERDICT_TYPE.equals(jws.getHeader().getType())) {
+            // Signed by the same keys, so it would otherwise pass as an access token
+            throw new UnsupportedJwtException("Authorization verdicts cannot be used as tokens");
+        }
+        return jws.getPayload();
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+    /**
+     * Decode and check JWT_SECRET so a missing or weak secret fails startup instead of the first login.
+     */
+    static SecretKey createSignInKey(String jwtSecret) {
+        if (jwtSecret == null || jwtSecret.isBlank()) {
+            throw new IllegalStateException("JWT_SECRET is not set");
+        }
+
+        byte[] keyBytes;
+        try {
+            keyBytes = Decoders.BASE64.decode(jwtSecret.trim());
+        } catch (DecodingException e) {
+            throw new IllegalStateException("JWT_SECRET must be Base64-encoded", e);
+        }
+
+        if (keyBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("JWT_SECRET must decode to at least " + MIN_SECRET_BYTES
+                    + " bytes for HS512, got " + keyBytes.length);
+        }
+
+        boolean[] seen = new boolean[256];
+        int distinctBytes = 0;
+        for (byte b : keyBytes) {
+            if (!seen[b & 0xFF]) {
+                seen[b & 0xFF] = true;
+                distinctBytes++;
+            }
+        }
+        if (distinctBytes < MIN_DISTINCT_SECRET_BYTES) {
+            throw new IllegalStateException("JWT_SECRET has too little entropy; generate it with a secure random source");
+        }
+
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
+    /**
+     * Public keys for /.well-known/jwks.json. Empty while tokens are signed with the shared HS512 secret.
+     */
+    public List<Map<String, Object>> getPublicJwks() {
+        return keyRing.getPublicJwks();
+    }
+
+    /**
+     * Whether tokens are signed with a key whose public half is published, so others can verify without being able to sign.
+     */
+    public boolean isAsymmetricSigning() {
+        return keyRing.getActiveKey().isAsymmetric();
+    }
+
     public long getAccessTokenExpiration() {
         return accessTokenExpiration;
     }
+
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
+
+    public boolean isStatelessAuthentication() {
+        return statelessAuthentication;
+    }
 }
 
@@ -0,0 +1,329 @@
+package com.hpt.authentication_svc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hpt.authentication_svc.exception.TooManyRequestsException;
+import com.hpt.authentication_svc.model.LoginAttempt;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Brute-force protection for password checks: per-account and per-IP sliding-window failure limits
+ * with exponential lockout. Callers check before any password hashing runs, so a blocked attempt
+ * costs a map lookup instead of a bcrypt verification.
+ *
+ * Failures are counted per fixed window and weighted with the previous window's count to approximate
+ * a sliding window. Reaching the limit locks the key for LOGIN_LOCKOUT_BASE_MS, doubling with each
+ * further lockout up to LOGIN_LOCKOUT_MAX_MS. A successful login clears the account's history;
+ * the IP's is kept.
+ *
+ * LOGIN_RATE_LIMIT_STORE selects where counters live: in this node's memory (memory, the default),
+ * or in the login_attempts collection so all nodes share them (mongo). In mongo mode lockouts are
+ * still cached locally once seen, so blocked attempts stay off the database.
+ */
+@Slf4j
+@Service
+public class LoginAttemptLimiter {
+
+    public static final String STORE_MEMORY = "memory";
+    public static final String STORE_MONGO = "mongo";
+
+    private static final String ACCOUNT_SCOPE = "account";
+    private static final String IP_SCOPE = "ip";
+    private static final int MAX_LOCKOUT_DOUBLINGS = 20;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean sharedStore;
+    private final long windowMillis;
+    private final int accountMaxFailures;
+    private final int ipMaxFailures;
+    private final int suspiciousIpFailures;
+    private final long lockoutBaseMillis;
+    private final long lockoutMaxMillis;
+    private final Counter accountBlocked;
+    private final Counter ipBlocked;
+
+    // Caffeine's map is a ConcurrentHashMap underneath: per-key compute() locks a single bin,
+    // so concurrent attempts on different keys never contend. In mongo mode only lockouts are kept here.
+    private final Cache<String, AttemptCounter> counters;
+
+    public LoginAttemptLimiter(MongoTemplate mongoTemplate, MeterRegistry meterRegistry, Dotenv dotenv) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = Boolean.parseBoolean(dotenv.get("LOGIN_RATE_LIMIT_ENABLED", "true"));
+        this.sharedStore = STORE_MONGO.equalsIgnoreCase(dotenv.get("LOGIN_RATE_LIMIT_STORE", STORE_MEMORY));
+        this.windowMillis = Long.parseLong(dotenv.get("LOGIN_RATE_LIMIT_WINDOW_MS", "900000"));
+        this.accountMaxFailures = Integer.parseInt(dotenv.get("LOGIN_RATE_LIMIT_ACCOUNT_MAX_FAILURES", "5"));
+        this.ipMaxFailures = Integer.parseInt(dotenv.get("LOGIN_RATE_LIMIT_IP_MAX_FAILURES", "20"));
+        this.suspiciousIpFailures = Integer.parseInt(dotenv.get("LOGIN_RATE_LIMIT_SUSPICIOUS_IP_FAILURES", "3"));
+        this.lockoutBaseMillis = Long.parseLong(dotenv.get("LOGIN_LOCKOUT_BASE_MS", "30000"));
+        this.lockoutMaxMillis = Long.parseLong(dotenv.get("LOGIN_LOCKOUT_MAX_MS", "3600000"));
+        this.accountBlocked = meterRegistry.counter("auth.login.rate_limited", "scope", ACCOUNT_SCOPE);
+        this.ipBlocked = meterRegistry.counter("auth.login.rate_limited", "scope", IP_SCOPE);
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(Long.parseLong(dotenv.get("LOGIN_RATE_LIMIT_CACHE_MAX_SIZE", "100000")))
+                // Long enough to remember the previous window and the lockout history
+                .expireAfterWrite(Duration.ofMillis(retentionMillis()))
+                .build();
+    }
+
+    /**
+     * Reject the attempt if the account or the client IP is locked out.
+     *
+     * @param account The email being tried, or null if the attempt has none
+     * @param clientIp The caller's address, or null if unknown
+     * @throws TooManyRequestsException if either is locked out
+     */
+    public void checkAllowed(String account, String clientIp) {
+        checkAllowed(account, clientIp, System.currentTimeMillis());
+    }
+
+    /**
+     * Count a failed password check against the account and the client IP.
+     */
+    public void recordFailure(String account, String clientIp) {
+        recordFailure(account, clientIp, System.currentTimeMillis());
+    }
+
+    /**
+     * Forget the account's failures after a successful password check.
+     */
+    public void recordSuccess(String account) {
+        recordSuccess(account, System.currentTimeMillis());
+    }
+
+    /**
+     * Whether the client IP has recent failures or has been locked out before, which makes
+     * RegisteredEmailFilter screen its logins. In mongo mode only lockouts seen by this node count.
+     */
+    public boolean isSuspicious(String clientIp) {
+        return isSuspicious(clientIp, System.currentTimeMillis());
+    }
+
+    boolean isSuspicious(String clientIp, long now) {
+        String ipKey = ipKey(clientIp);
+        if (!enabled || ipKey == null) {
+            return false;
+        }
+        AttemptCounter counter = counters.getIfPresent(ipKey);
+        if (counter == null) {
+            return false;
+        }
+        if (counter.lockouts() > 0) {
+            return true;
+        }
+        long windowStart = now - now % windowMillis;
+        int previousCount = 0;
+        int currentCount = 0;
+        if (counter.windowStart() == windowStart) {
+            previousCount = counter.previousCount();
+            currentCount = counter.currentCount();
+        } else if (counter.windowStart() == windowStart - windowMillis) {
+            previousCount = counter.currentCount();
+        }
+        return slidingCount(previousCount, currentCount, now) >= suspiciousIpFailures;
+    }
+
+    void checkAllowed(String account, String clientIp, long now) {
+        if (!enabled) {
+            return;
+        }
+        String accountKey = accountKey(account);
+        String ipKey = ipKey(clientIp);
+        if (sharedStore) {
+            loadSharedLockouts(accountKey, ipKey, now);
+        }
+        checkKey(accountKey, accountBlocked, now);
+        checkKey(ipKey, ipBlocked, now);
+    }
+
+    void recordFailure(String account, String clientIp, long now) {
+        if (!enabled) {
+            return;
+        }
+        recordFailure(accountKey(account), accountMaxFailures, now);
+        recordFailure(ipKey(clientIp), ipMaxFailures, now);
+    }
+
+    void recordSuccess(String account, long now) {
+        String accountKey = accountKey(account);
+        if (!enabled || accountKey == null) {
+            return;
+        }
+        counters.invalidate(accountKey);
+        if (sharedStore) {
+            long window = now / windowMillis;
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(
+                    accountKey, counterId(accountKey, window), counterId(accountKey, window - 1))), LoginAttempt.class);
+        }
+    }
+
+    private void checkKey(String key, Counter blockedCounter, long now) {
+        if (key == null) {
+            return;
+        }
+        AttemptCounter counter = counters.getIfPresent(key);
+        if (counter != null && counter.lockedUntil() > now) {
+            blockedCounter.increment();
+            long retryAfterSeconds = Math.max(1, (counter.lockedUntil() - now + 999) / 1000);
+            throw new TooManyRequestsException("Too many failed attempts, try again later", retryAfterSeconds);
+        }
+    }
+
+    private void recordFailure(String key, int maxFailures, long now) {
+        if (key == null) {
+            return;
+        }
+        if (sharedStore) {
+            recordSharedFailure(key, maxFailures, now);
+            return;
+        }
+        AttemptCounter before = counters.getIfPresent(key);
+        AttemptCounter after = counters.asMap().compute(key, (k, current) -> registerFailure(current, maxFailures, now));
+        if (after.lockouts() > (before != null ? before.lockouts() : 0)) {
+            log.warn("Locked out {} for {} ms after repeated failures", key, after.lockedUntil() - now);
+        }
+    }
+
+    private AttemptCounter registerFailure(AttemptCounter counter, int maxFailures, long now) {
+        long windowStart = now - now % windowMillis;
+        int previousCount = 0;
+        int currentCount = 0;
+        int lockouts = 0;
+        long lockedUntil = 0;
+        if (counter != null) {
+            lockouts = counter.lockouts();
+            lockedUntil = counter.lockedUntil();
+            if (counter.windowStart() == windowStart) {
+                previousCount = counter.previousCount();
+                currentCount = counter.currentCount();
+            } else if (counter.windowStart() == windowStart - windowMillis) {
+                previousCount = counter.currentCount();
+            }
+        }
+        currentCount++;
+        // Counts are not reset on lockout, so the first failure after one expires locks again, for twice as long
+        if (lockedUntil <= now && slidingCount(previousCount, currentCount, now) >= maxFailures) {
+            lockedUntil = now + lockoutMillis(lockouts);
+            lockouts++;
+        }
+        return new AttemptCounter(windowStart, previousCount, currentCount, lockouts, lockedUntil);
+    }
+
+    private void recordSharedFailure(String key, int maxFailures, long now) {
+        long window = now / windowMillis;
+        // $inc on an upserted per-window document is atomic across nodes
+        LoginAttempt current = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(counterId(key, window))),
+                new Update().inc("count", 1)
+                        .setOnInsert("expiresAt", Instant.ofEpochMilli((window + 2) * windowMillis)),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                LoginAttempt.class);
+        LoginAttempt previous = mongoTemplate.findById(counterId(key, window - 1), LoginAttempt.class);
+        int currentCount = current != null ? current.getCount() : 1;
+        int previousCount = previous != null ? previous.getCount() : 0;
+
+        AttemptCounter known = counters.getIfPresent(key);
+        if (known != null && known.lockedUntil() > now) {
+            return;
+        }
+        if (slidingCount(previousCount, currentCount, now) < maxFailures) {
+            return;
+        }
+
+        LoginAttempt lockout = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(key)),
+                new Update().inc("lockouts", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                LoginAttempt.class);
+        int lockouts = lockout != null ? lockout.getLockouts() : 1;
+        long lockedUntil = now + lockoutMillis(lockouts - 1);
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(key)),
+                new Update().max("lockedUntil", Instant.ofEpochMilli(lockedUntil))
+                        .set("expiresAt", Instant.ofEpochMilli(lockedUntil + retentionMillis())),
+                LoginAttempt.class);
+        counters.put(key, AttemptCounter.locked(lockouts, lockedUntil));
+        log.warn("Locked out {} for {} ms after repeated failures", key, lockedUntil - now);
+    }
+
+    /**
+     * Pull lockouts set by other nodes into the local cache. Keys already known to be locked
+     * are not looked up, so repeated blocked attempts never reach Mongo.
+     */
+    private void loadSharedLockouts(String accountKey, String ipKey, long now) {
+        List<String> ids = new ArrayList<>(2);
+        for (String key : new String[]{accountKey, ipKey}) {
+            if (key == null) {
+                continue;
+            }
+            AttemptCounter known = counters.getIfPresent(key);
+            if (known != null && known.lockedUntil() > now) {
+                return;
+            }
+            ids.add(key);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (LoginAttempt lockout : mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), LoginAttempt.class)) {
+            if (lockout.getLockedUntil() != null && lockout.getLockedUntil().toEpochMilli() > now) {
+                counters.put(lockout.getId(), AttemptCounter.locked(lockout.getLockouts(), lockout.getLockedUntil().toEpochMilli()));
+            }
+        }
+    }
+
+    private double slidingCount(int previousCount, int currentCount, long now) {
+        double previousWeight = (double) (windowMillis - now % windowMillis) / windowMillis;
+        return previousCount * previousWeight + currentCount;
+    }
+
+    private long lockoutMillis(int previousLockouts) {
+        long lockout = lockoutBaseMillis << Math.min(previousLockouts, MAX_LOCKOUT_DOUBLINGS);
+        return Math.min(lockout, lockoutMaxMillis);
+    }
+
+    private long retentionMillis() {
+        return Math.max(2 * windowMillis, lockoutMaxMillis) + lockoutMaxMillis;
+    }
+
+    private static String accountKey(String account) {
+        if (account == null || account.isBlank()) {
+            return null;
+        }
+        return ACCOUNT_SCOPE + ":" + account.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        if (clientIp == null || clientIp.isBlank()) {
+            return null;
+        }
+        return IP_SCOPE + ":" + clientIp.trim();
+    }
+
+    private static String counterId(String key, long window) {
+        return key + "@" + window;
+    }
+
+    private record AttemptCounter(long windowStart, int previousCount, int currentCount,
+                                  int lockouts, long lockedUntil) {
+
+        static AttemptCounter locked(int lockouts, long lockedUntil) {
+            return new AttemptCounter(0, 0, 0, lockouts, lockedUntil);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.hpt.authentication_svc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hpt.authentication_svc.exception.UnauthorizedException;
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.model.RefreshTokenFamily;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.hpt.authentication_svc.util.HashUtils;
+import com.mongodb.client.result.UpdateResult;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * One-time-use refresh tokens grouped into sessions (see RefreshTokenFamily).
+ *
+ * REFRESH_TOKEN_MODE selects what is issued: signed JWTs carrying the session id (jwt, the default),
+ * or short random opaque tokens of the form {@code <sessionId>.<secret>} (opaque). Both kinds are
+ * accepted on refresh whatever the mode, so switching modes does not log anyone out.
+ *
+ * Rotation is a single conditional update matched on the session's _id and current token, so the
+ * happy path costs one indexed write and two concurrent uses of the same token cannot both succeed.
+ * A token that no longer matches has been used before; the whole session is revoked so neither the
+ * thief nor the victim can continue with it, and the user has to log in again. For opaque tokens
+ * the last REFRESH_SESSION_SPENT_HISTORY used hashes are remembered; a token older than that is
+ * simply rejected, since revoking a session for any unknown secret would let anyone who knows a
+ * session id log its owner out.
+ *
+ * JWT refresh tokens carry token_use "refresh"; access tokens are never accepted here. Refresh tokens
+ * issued before sessions existed look like access tokens, so they are only accepted when issued before
+ * REFRESH_TOKEN_LEGACY_ISSUED_BEFORE (an ISO-8601 instant; unset rejects them) with a refresh lifetime.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    public static final String MODE_JWT = "jwt";
+    public static final String MODE_OPAQUE = "opaque";
+
+    private static final int OPAQUE_SECRET_BYTES = 32;
+    private static final int MAX_DEVICE_LENGTH = 256;
+
+    private final MongoTemplate mongoTemplate;
+    private final JwtService jwtService;
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final TokenRevocationCache tokenRevocationCache;
+    private final boolean opaqueTokens;
+    private final int spentHistory;
+    // Refresh tokens without token_use or fid are only accepted if issued before this instant
+    private final Instant legacyIssuedBefore;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    // Opaque sessions by id, so a refresh normally costs only the rotation write.
+    // A cached copy that knows the presented token neither as current nor as spent is re-read before deciding.
+    private final Cache<String, RefreshTokenFamily> sessionCache;
+
+    public RefreshTokenService(MongoTemplate mongoTemplate, JwtService jwtService,
+                               BlacklistedTokenRepository blacklistedTokenRepository,
+                               TokenRevocationCache tokenRevocationCache,
+                               MeterRegistry meterRegistry, Dotenv dotenv) {
+        this.mongoTemplate = mongoTemplate;
+        this.jwtService = jwtService;
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.tokenRevocationCache = tokenRevocationCache;
+        this.opaqueTokens = MODE_OPAQUE.equalsIgnoreCase(dotenv.get("REFRESH_TOKEN_MODE", MODE_JWT));
+        this.spentHistory = Integer.parseInt(dotenv.get("REFRESH_SESSION_SPENT_HISTORY", "32"));
+        String legacyIssuedBefore = dotenv.get("REFRESH_TOKEN_LEGACY_ISSUED_BEFORE", "");
+        this.legacyIssuedBefore = legacyIssuedBefore.isBlank() ? null : Instant.parse(legacyIssuedBefore.trim());
+        this.sessionCache = Caffeine.newBuilder()
+                .maximumSize(Long.parseLong(dotenv.get("REFRESH_SESSION_CACHE_MAX_SIZE", "100000")))
+                .expireAfterWrite(Duration.ofSeconds(Long.parseLong(dotenv.get("REFRESH_SESSION_CACHE_TTL_SECONDS", "300"))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessionCache, "refreshSessions");
+    }
+
+    /**
+     * Start a new session at login and return its first refresh token.
+     */
+    public String issue(UserPrincipal principal) {
+        Instant now = Instant.now();
+        RefreshTokenFamily session = RefreshTokenFamily.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(principal.getId())
+                .userEmail(principal.getUsername())
+                .device(currentDevice())
+                .tokenVersion(principal.getTokenVersion())
+                .createdAt(now)
+                .lastUsedAt(now)
+                .expiresAt(now.plusMillis(jwtService.getRefreshTokenExpiration()))
+                .build();
+
+        if (opaqueTokens) {
+            String token = newOpaqueToken(session.getId());
+            session.setTokenHash(HashUtils.sha256Hex(token));
+            mongoTemplate.insert(session);
+            sessionCache.put(session.getId(), session);
+            return token;
+        }
+
+        session.setCurrentTokenId(UUID.randomUUID().toString());
+        mongoTemplate.insert(session);
+        return jwtService.generateRefreshToken(principal, session.getId(), session.getCurrentTokenId());
+    }
+
+    /**
+     * Check a presented refresh token of either kind, without using it up.
+     * For opaque tokens the subject and token version come from the session record.
+     *
+     * @return The verified token, or empty if it is invalid, expired or revoked
+     */
+    public Optional<VerifiedToken> verify(String refreshToken) {
+        if (refreshToken == null || !isOpaque(refreshToken)) {
+            return jwtService.verifyToken(refreshToken)
+                    .filter(token -> token.isRefreshToken() || isLegacyRefreshToken(token));
+        }
+
+        String sessionId = refreshToken.substring(0, refreshToken.indexOf('.'));
+        String tokenHash = HashUtils.sha256Hex(refreshToken);
+        RefreshTokenFamily session = sessionCache.getIfPresent(sessionId);
+        if (session == null || !(tokenHash.equals(session.getTokenHash()) || session.isSpent(tokenHash))) {
+            session = mongoTemplate.findById(sessionId, RefreshTokenFamily.class);
+            if (session == null) {
+                return Optional.empty();
+            }
+            sessionCache.put(sessionId, session);
+        }
+
+        if (session.isSpent(tokenHash)) {
+            revokeFamily(sessionId);
+            log.warn("Refresh token reuse detected for {}, session {} revoked", session.getUserEmail(), sessionId);
+            return Optional.empty();
+        }
+        if (!tokenHash.equals(session.getTokenHash()) || !session.isActive()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(VerifiedToken.builder()
+                .token(refreshToken)
+                .subject(session.getUserEmail())
+                .userId(session.getUserId())
+                .familyId(sessionId)
+                .tokenUse(VerifiedToken.USE_REFRESH)
+                .tokenVersion(session.getTokenVersion())
+                .issuedAt(session.getLastUsedAt())
+                .expiresAt(session.getExpiresAt())
+                .build());
+    }
+
+    /**
+     * Exchange a verified refresh token for the next token of its session.
+     *
+     * @throws UnauthorizedException if the token was already used, or its session is revoked or expired
+     */
+    public String rotate(VerifiedToken refreshToken, UserPrincipal principal) {
+        if (refreshToken.getFamilyId() == null) {
+            return redeemLegacyToken(refreshToken, principal);
+        }
+        if (isOpaque(refreshToken.getToken())) {
+            return rotateOpaque(refreshToken, principal);
+        }
+
+        Instant now = Instant.now();
+        String nextTokenId = UUID.randomUUID().toString();
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(refreshToken.getFamilyId())
+                        .and("currentTokenId").is(refreshToken.getTokenId())
+                        .and("revoked").is(false)),
+                new Update()
+                        .set("currentTokenId", nextTokenId)
+                        .set("lastUsedAt", now)
+                        .set("expiresAt", now.plusMillis(jwtService.getRefreshTokenExpiration())),
+                RefreshTokenFamily.class
+        );
+
+        if (result.getMatchedCount() == 0) {
+            // Already rotated, revoked or expired: in every case this token must not work again
+            revokeFamily(refreshToken.getFamilyId());
+            log.warn("Refresh token reuse detected for {}, family {} revoked",
+                    refreshToken.getSubject(), refreshToken.getFamilyId());
+            throw new UnauthorizedException("Invalid or expired refresh token");
+        }
+
+        return jwtService.generateRefreshToken(principal, refreshToken.getFamilyId(), nextTokenId);
+    }
+
+    public void revokeFamily(String familyId) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(familyId)),
+                new Update().set("revoked", true),
+                RefreshTokenFamily.class
+        );
+        sessionCache.invalidate(familyId);
+    }
+
+    /**
+     * Active sessions of a user, most recently used first, read from the userId/lastUsedAt index.
+     */
+    public List<RefreshTokenFamily> listActiveSessions(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId)
+                        .and("revoked").is(false)
+                        .and("expiresAt").gt(Instant.now()))
+                .with(Sort.by(Sort.Direction.DESC, "lastUsedAt"));
+        query.fields().exclude("tokenHash", "spentTokenHashes", "currentTokenId");
+        return mongoTemplate.find(query, RefreshTokenFamily.class);
+    }
+
+    /**
+     * Revoke one of the user's sessions, effective immediately on every node.
+     *
+     * @return false if the user has no such active session
+     */
+    public boolean revokeSession(String userId, String sessionId) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(sessionId)
+                        .and("userId").is(userId)
+                        .and("revoked").is(false)),
+                new Update().set("revoked", true),
+                RefreshTokenFamily.class
+        );
+        sessionCache.invalidate(sessionId);
+        return result.getMatchedCount() > 0;
+    }
+
+    private String rotateOpaque(VerifiedToken refreshToken, UserPrincipal principal) {
+        String sessionId = refreshToken.getFamilyId();
+        String presentedHash = HashUtils.sha256Hex(refreshToken.getToken());
+        String nextToken = newOpaqueToken(sessionId);
+        String nextHash = HashUtils.sha256Hex(nextToken);
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusMillis(jwtService.getRefreshTokenExpiration());
+
+        Update update = new Update()
+                .set("tokenHash", nextHash)
+                .set("lastUsedAt", now)
+                .set("expiresAt", expiresAt);
+        update.push("spentTokenHashes").slice(-spentHistory).each(presentedHash);
+
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(sessionId)
+                        .and("tokenHash").is(presentedHash)
+                        .and("revoked").is(false)),
+                update,
+                RefreshTokenFamily.class
+        );
+
+        if (result.getMatchedCount() == 0) {
+            // Lost a race with another use of the same token
+            revokeFamily(sessionId);
+            log.warn("Refresh token reuse detected for {}, session {} revoked", refreshToken.getSubject(), sessionId);
+            throw new UnauthorizedException("Invalid or expired refresh token");
+        }
+
+        RefreshTokenFamily cached = sessionCache.getIfPresent(sessionId);
+        if (cached != null) {
+            List<String> spent = new ArrayList<>(cached.getSpentTokenHashes() != null ? cached.getSpentTokenHashes() : List.of());
+            spent.add(presentedHash);
+            sessionCache.put(sessionId, cached.toBuilder()
+                    .tokenHash(nextHash)
+                    .spentTokenHashes(List.copyOf(spent.subList(Math.max(0, spent.size() - spentHistory), spent.size())))
+                    .lastUsedAt(now)
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+        return nextToken;
+    }
+
+    /**
+     * Accept a refresh token issued before sessions existed exactly once, then start a session.
+     * The unique tokenId index on blacklisted_tokens makes the one-time check atomic.
+     */
+    private String redeemLegacyToken(VerifiedToken refreshToken, UserPrincipal principal) {
+        BlacklistedToken redeemed = BlacklistedToken.builder()
+                .tokenId(refreshToken.getRevocationKey())
+                .userEmail(refreshToken.getSubject())
+                .expiresAt(refreshToken.getExpiresAt())
+                .blacklistedAt(Instant.now())
+                .build();
+        try {
+            blacklistedTokenRepository.insert(redeemed);
+        } catch (DuplicateKeyException e) {
+            log.warn("Legacy refresh token reused for {}", refreshToken.getSubject());
+            throw new UnauthorizedException("Invalid or expired refresh token");
+        }
+        tokenRevocationCache.add(redeemed);
+        return issue(principal);
+    }
+
+    /**
+     * A refresh token from before token families: no token_use or fid, issued before the configured
+     * cutoff, and living longer than an access token could.
+     */
+    private boolean isLegacyRefreshToken(VerifiedToken token) {
+        if (token.getTokenUse() != null || token.getFamilyId() != null || legacyIssuedBefore == null
+                || token.getIssuedAt() == null || token.getExpiresAt() == null) {
+            return false;
+        }
+        Duration lifetime = Duration.between(token.getIssuedAt(), token.getExpiresAt());
+        return token.getIssuedAt().isBefore(legacyIssuedBefore)
+                && lifetime.toMillis() > jwtService.getAccessTokenExpiration();
+    }
+
+    // Compact JWS tokens always have two dots; opaque tokens have exactly one
+    private static boolean isOpaque(String token) {
+        int firstDot = token.indexOf('.');
+        return firstDot > 0 && token.indexOf('.', firstDot + 1) < 0;
+    }
+
+    private String newOpaqueToken(String sessionId) {
+        byte[] secret = new byte[OPAQUE_SECRET_BYTES];
+        secureRandom.nextBytes(secret);
+        return sessionId + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    private static String currentDevice() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        return userAgent != null && userAgent.length() > MAX_DEVICE_LENGTH
+                ? userAgent.substring(0, MAX_DEVICE_LENGTH)
+                : userAgent;
+    }
+}
@@ -0,0 +1,206 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.util.BloomFilter;
+import io.github.cdimascio.dotenv.Dotenv;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Admission check for logins: a Bloom filter of registered emails, so logins for emails that
+ * certainly do not exist can be refused without the dummy password hash DaoAuthenticationProvider
+ * runs for unknown users.
+ *
+ * Every source is screened by default. With LOGIN_ADMISSION_SCREEN_ALL=false only sources flagged by
+ * LoginAttemptLimiter#isSuspicious are, which a distributed attack can stay below. A refused attempt is
+ * held until the average duration of a real password check has passed, so response time does not
+ * reveal whether an email is registered; the wait is a sleep, not CPU.
+ *
+ * The filter is loaded from the users collection at startup and kept current by add() on this node
+ * and a periodic query for users created since the last load on others. Until the first load
+ * completes every email counts as registered. Deleted users stay in the filter until the next full
+ * rebuild, which only means they are not screened.
+ */
+@Slf4j
+@Service
+public class RegisteredEmailFilter {
+
+    // Users created on another node are picked up by the next refresh; allow for clock differences
+    private static final Duration CREATED_AT_SKEW = Duration.ofMinutes(1);
+    private static final int AVERAGE_WEIGHT = 8;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean screenAllSources;
+    private final long bloomExpectedInsertions;
+    private final double bloomFalsePositiveRate;
+    private final long refreshIntervalMillis;
+    private final long rebuildIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    // Moving average of password check duration, the time a refused attempt is held for
+    private final AtomicLong averagePasswordCheckNanos;
+
+    private volatile BloomFilter bloomFilter;
+    private volatile boolean ready = false;
+    // Only touched by the scheduler thread
+    private Instant loadedUntil = Instant.EPOCH;
+    private Instant lastRebuild = Instant.EPOCH;
+
+    public RegisteredEmailFilter(MongoTemplate mongoTemplate, Dotenv dotenv) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = Boolean.parseBoolean(dotenv.get("LOGIN_ADMISSION_ENABLED", "true"));
+        this.screenAllSources = Boolean.parseBoolean(dotenv.get("LOGIN_ADMISSION_SCREEN_ALL", "true"));
+        this.bloomExpectedInsertions = Long.parseLong(dotenv.get("REGISTERED_EMAIL_BLOOM_EXPECTED_INSERTIONS", "1000000"));
+        this.bloomFalsePositiveRate = Double.parseDouble(dotenv.get("REGISTERED_EMAIL_BLOOM_FALSE_POSITIVE_RATE", "0.01"));
+        this.refreshIntervalMillis = Long.parseLong(dotenv.get("REGISTERED_EMAIL_REFRESH_INTERVAL_MS", "30000"));
+        this.rebuildIntervalMillis = Long.parseLong(dotenv.get("REGISTERED_EMAIL_REBUILD_INTERVAL_MS", "86400000"));
+        this.averagePasswordCheckNanos = new AtomicLong(
+                TimeUnit.MILLISECONDS.toNanos(Long.parseLong(dotenv.get("LOGIN_ADMISSION_INITIAL_CHECK_MS", "250"))));
+        this.bloomFilter = new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registered-email-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Whether a login for this email may be refused without checking the password.
+     *
+     * @param suspiciousSource Whether the caller has been flagged by LoginAttemptLimiter
+     * @return true if the email is not in the filter and the source is screened. Users registered on
+     *         another node since the last refresh are missing too, so confirm before refusing.
+     */
+    public boolean shouldReject(String email, boolean suspiciousSource) {
+        if (!enabled || (!suspiciousSource && !screenAllSources)) {
+            return false;
+        }
+        return !mightBeRegistered(email);
+    }
+
+    public boolean mightBeRegistered(String email) {
+        if (!ready || email == null) {
+            return true;
+        }
+        return bloomFilter.mightContain(normalize(email));
+    }
+
+    /**
+     * Record an email as registered; called after the user has been saved.
+     */
+    public void add(String email) {
+        if (email != null) {
+            bloomFilter.put(normalize(email));
+        }
+    }
+
+    /**
+     * Feed the duration of a real password check into the average refused attempts are held for.
+     */
+    public void recordPasswordCheck(long nanos) {
+        averagePasswordCheckNanos.updateAndGet(average -> average + (nanos - average) / AVERAGE_WEIGHT);
+    }
+
+    /**
+     * Park the caller until an average password check would have finished, counted from startedNanos.
+     */
+    public void awaitPasswordCheckDuration(long startedNanos) {
+        long deadline = startedNanos + averagePasswordCheckNanos.get();
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    long getAveragePasswordCheckNanos() {
+        return averagePasswordCheckNanos.get();
+    }
+
+    /**
+     * Add users created since the last load, or rebuild the whole filter when it is due.
+     */
+    void refresh() {
+        if (!ready || Instant.now().isAfter(lastRebuild.plusMillis(rebuildIntervalMillis))) {
+            rebuild();
+            return;
+        }
+        Instant startedAt = Instant.now();
+        int added = load(bloomFilter, Criteria.where("createdAt").gte(loadedUntil));
+        loadedUntil = startedAt.minus(CREATED_AT_SKEW);
+        if (added > 0) {
+            log.debug("Added {} new users to the registered email filter", added);
+        }
+    }
+
+    private void rebuild() {
+        Instant startedAt = Instant.now();
+        // Size for the current user count so the false positive rate holds as the collection grows
+        long expectedInsertions = Math.max(bloomExpectedInsertions, mongoTemplate.estimatedCount(User.class) * 2);
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, bloomFalsePositiveRate);
+        int loaded = load(rebuilt, new Criteria());
+        bloomFilter = rebuilt;
+        // Catch users saved on this node while the full load was running
+        loadedUntil = startedAt.minus(CREATED_AT_SKEW);
+        load(rebuilt, Criteria.where("createdAt").gte(loadedUntil));
+        lastRebuild = startedAt;
+        ready = true;
+
+        log.info("Rebuilt registered email filter with {} users in {} ms",
+                loaded, Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    private int load(BloomFilter target, Criteria criteria) {
+        Query query = Query.query(criteria);
+        query.fields().include("email");
+        int count = 0;
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                if (user.getEmail() != null) {
+                    target.put(normalize(user.getEmail()));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Failed to refresh registered email filter: {}", e.getMessage());
+        }
+    }
+
+    private static String normalize(String email) {
+        // Lookups are exact, but folding case can only add matches, never hide a registered user
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
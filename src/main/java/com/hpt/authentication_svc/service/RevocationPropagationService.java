@@ -0,0 +1,218 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes revocations made on any replica into this node's TokenRevocationCache.
+ *
+ * Subscribes to a MongoDB change stream on blacklisted_tokens. Deployments without change streams
+ * (standalone servers) fall back to polling by blacklistedAt. While either source is healthy the cache
+ * is marked current, which lets it skip the per-request existsByToken lookup; a logout on another node
+ * is then honored within roughly one poll interval, or the change stream delivery time.
+ *
+ * Publishes the delay between a revocation and its arrival here as auth.revocation.propagation.lag.
+ */
+@Slf4j
+@Service
+public class RevocationPropagationService {
+
+    private static final String COLLECTION = "blacklisted_tokens";
+
+    // Server error returned when change streams are unavailable (standalone, non-replica-set deployments)
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+    // Revocations are stamped with the revoking node's clock, so re-read a little history on every poll
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(30);
+
+    private static final Duration STREAM_AWAIT = Duration.ofSeconds(1);
+    private static final Duration RECONNECT_BACKOFF = Duration.ofSeconds(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final TokenRevocationCache tokenRevocationCache;
+    private final Timer propagationLag;
+    private final Duration pollInterval;
+    private final Duration maxStaleness;
+    private final boolean changeStreamsEnabled;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+    private volatile Instant pollWatermark;
+    private volatile Instant lastHeartbeat = Instant.EPOCH;
+
+    public RevocationPropagationService(MongoTemplate mongoTemplate,
+                                        BlacklistedTokenRepository blacklistedTokenRepository,
+                                        TokenRevocationCache tokenRevocationCache,
+                                        MeterRegistry meterRegistry,
+                                        Dotenv dotenv) {
+        this.mongoTemplate = mongoTemplate;
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.tokenRevocationCache = tokenRevocationCache;
+        this.pollInterval = Duration.ofMillis(Long.parseLong(dotenv.get("REVOCATION_POLL_INTERVAL_MS", "5000")));
+        this.maxStaleness = Duration.ofMillis(Long.parseLong(dotenv.get("REVOCATION_MAX_STALENESS_MS", "15000")));
+        this.changeStreamsEnabled = Boolean.parseBoolean(dotenv.get("REVOCATION_CHANGE_STREAMS_ENABLED", "true"));
+        this.propagationLag = Timer.builder("auth.revocation.propagation.lag")
+                .description("Delay between a token being blacklisted and this node learning about it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("auth.revocation.propagation.staleness", this,
+                        service -> Duration.between(service.lastHeartbeat, Instant.now()).toMillis() / 1000.0)
+                .description("Seconds since this node last confirmed it has every revocation")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.pollWatermark = Instant.now();
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        pollWatermark = Instant.now();
+        Thread thread = new Thread(this::run, "token-revocation-propagation");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        boolean streaming = changeStreamsEnabled;
+        BsonDocument resumeToken = null;
+
+        while (running) {
+            try {
+                if (streaming) {
+                    resumeToken = stream(resumeToken);
+                } else {
+                    poll();
+                    sleep(pollInterval);
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    log.info("Change streams are not supported by this deployment, polling blacklisted tokens instead");
+                    streaming = false;
+                } else {
+                    handleFailure(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                handleFailure(e);
+                // Resume token may be stale after a long outage; the catch-up poll covers the gap
+                resumeToken = null;
+            }
+        }
+    }
+
+    /**
+     * Follow the change stream until it fails or the service stops.
+     *
+     * @return The last resume token, so a reconnect continues where this stream left off
+     */
+    private BsonDocument stream(BsonDocument resumeToken) {
+        var changeStream = mongoTemplate.getCollection(COLLECTION)
+                .watch(List.of(Aggregates.match(Filters.eq("operationType", "insert"))))
+                .maxAwaitTime(STREAM_AWAIT.toMillis(), TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            changeStream = changeStream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changeStream.cursor()) {
+            if (resumeToken == null) {
+                // The stream only sees inserts from now on; pick up anything written while disconnected
+                poll();
+            }
+            log.info("Listening for token revocations on change stream");
+
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null && change.getFullDocument() != null) {
+                    apply(mongoTemplate.getConverter().read(BlacklistedToken.class, change.getFullDocument()));
+                }
+                if (cursor.getResumeToken() != null) {
+                    resumeToken = cursor.getResumeToken();
+                }
+                heartbeat();
+            }
+        }
+        return resumeToken;
+    }
+
+    void poll() {
+        Instant polledAt = Instant.now();
+        List<BlacklistedToken> recent = blacklistedTokenRepository
+                .findByBlacklistedAtAfter(pollWatermark.minus(POLL_OVERLAP));
+        for (BlacklistedToken blacklistedToken : recent) {
+            apply(blacklistedToken);
+            if (blacklistedToken.getBlacklistedAt() != null && blacklistedToken.getBlacklistedAt().isAfter(pollWatermark)) {
+                pollWatermark = blacklistedToken.getBlacklistedAt();
+            }
+        }
+        heartbeat(polledAt);
+    }
+
+    private void apply(BlacklistedToken blacklistedToken) {
+        tokenRevocationCache.add(blacklistedToken);
+        if (blacklistedToken.getBlacklistedAt() != null) {
+            Duration lag = Duration.between(blacklistedToken.getBlacklistedAt(), Instant.now());
+            propagationLag.record(lag.isNegative() ? Duration.ZERO : lag);
+        }
+    }
+
+    private void heartbeat() {
+        heartbeat(Instant.now());
+    }
+
+    private void heartbeat(Instant confirmedAt) {
+        lastHeartbeat = confirmedAt;
+        tokenRevocationCache.markCurrentUntil(confirmedAt.plus(maxStaleness));
+    }
+
+    private void handleFailure(Exception e) {
+        log.warn("Token revocation propagation interrupted, retrying in {}s: {}",
+                RECONNECT_BACKOFF.toSeconds(), e.getMessage());
+        try {
+            sleep(RECONNECT_BACKOFF);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void sleep(Duration duration) throws InterruptedException {
+        Thread.sleep(duration.toMillis());
+    }
+}
@@ -0,0 +1,182 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.dto.response.IntrospectionResponse;
+import com.hpt.authentication_svc.dto.response.VerdictResponse;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import com.hpt.authentication_svc.exception.UnauthorizedException;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
+import io.github.cdimascio.dotenv.Dotenv;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Answers "is this token valid and whose is it" for the gateway and other services, applying the
+ * same checks as JwtAuthenticationFilter: signature and expiry, revocation, enabled flag and token version.
+ *
+ * Signatures are verified in memory and principals come from UserService's cache. Revocation for a
+ * whole batch is settled by TokenRevocationCache with at most one $in query.
+ *
+ * Verdicts are the cacheable form of a positive answer: a signed statement that the token was
+ * active, valid for at most VERDICT_MAX_TTL_MS. A revocation therefore reaches a gateway that
+ * caches verdicts within that ceiling. Verdicts are only issued while tokens are signed with an
+ * asymmetric key (JWT_SIGNING_ALGORITHM ES256 or EdDSA); with HS512 a gateway would need the secret.
+ *
+ * Only access tokens are reported active; refresh tokens introspect as inactive. Callers must present
+ * INTROSPECTION_CLIENT_KEY. Without one every call is refused, unless INTROSPECTION_ALLOW_UNAUTHENTICATED
+ * is set for local development.
+ */
+@Slf4j
+@Service
+public class TokenIntrospectionService {
+
+    private final JwtService jwtService;
+    private final UserService userService;
+    private final TokenRevocationCache tokenRevocationCache;
+    private final int maxBatchSize;
+    private final long verdictMaxTtlMillis;
+    // Shared key callers must present
+    private final byte[] clientKey;
+    private final boolean allowUnauthenticated;
+
+    public TokenIntrospectionService(JwtService jwtService, UserService userService,
+                                     TokenRevocationCache tokenRevocationCache, Dotenv dotenv) {
+        this.jwtService = jwtService;
+        this.userService = userService;
+        this.tokenRevocationCache = tokenRevocationCache;
+        this.maxBatchSize = Integer.parseInt(dotenv.get("INTROSPECTION_MAX_BATCH_SIZE", "100"));
+        this.verdictMaxTtlMillis = Long.parseLong(dotenv.get("VERDICT_MAX_TTL_MS", "60000"));
+        String key = dotenv.get("INTROSPECTION_CLIENT_KEY", "");
+        this.clientKey = key.isBlank() ? null : key.getBytes(StandardCharsets.UTF_8);
+        this.allowUnauthenticated = Boolean.parseBoolean(dotenv.get("INTROSPECTION_ALLOW_UNAUTHENTICATED", "false"));
+        if (clientKey == null) {
+            log.warn(allowUnauthenticated
+                    ? "INTROSPECTION_CLIENT_KEY is not set and INTROSPECTION_ALLOW_UNAUTHENTICATED is on: introspection is open to anyone"
+                    : "INTROSPECTION_CLIENT_KEY is not set: introspection requests will be refused");
+        }
+    }
+
+    /**
+     * Check the caller's key. Without a configured key every caller is refused,
+     * unless unauthenticated introspection has been explicitly allowed.
+     */
+    public void authorizeClient(String presentedKey) {
+        if (clientKey == null) {
+            if (allowUnauthenticated) {
+                return;
+            }
+            throw new UnauthorizedException("Introspection is not configured");
+        }
+        if (presentedKey == null
+                || !MessageDigest.isEqual(clientKey, presentedKey.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Invalid introspection client key");
+        }
+    }
+
+    public IntrospectionResponse introspect(String token) {
+        return introspectBatch(List.of(token)).get(0);
+    }
+
+    /**
+     * Introspect up to INTROSPECTION_MAX_BATCH_SIZE tokens in one call.
+     *
+     * @return One result per token, in the same order
+     */
+    public List<IntrospectionResponse> introspectBatch(List<String> tokens) {
+        if (tokens.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " tokens can be introspected per call");
+        }
+
+        List<VerifiedToken> verifiedTokens = tokens.stream()
+                .map(token -> token == null ? null : verifyAccessToken(token).orElse(null))
+                .toList();
+        Set<String> revoked = tokenRevocationCache.findRevoked(verifiedTokens.stream()
+                .filter(Objects::nonNull)
+                .map(VerifiedToken::getRevocationKey)
+                .toList());
+
+        return verifiedTokens.stream()
+                .map(token -> token == null || revoked.contains(token.getRevocationKey())
+                        ? IntrospectionResponse.inactive()
+                        : describe(token))
+                .toList();
+    }
+
+    /**
+     * Issue a signed verdict for an active token. The verdict expires with the token
+     * or after VERDICT_MAX_TTL_MS, whichever comes first.
+     *
+     * @throws ServiceUnavailableException if tokens are signed with the shared HS512 secret
+     * @throws UnauthorizedException if the token is not active
+     */
+    public VerdictResponse issueVerdict(String token) {
+        if (!jwtService.isAsymmetricSigning()) {
+            throw new ServiceUnavailableException("Verdicts require an asymmetric JWT signing key");
+        }
+        VerifiedToken verifiedToken = verifyAccessToken(token)
+                .filter(verified -> !tokenRevocationCache.isRevoked(verified.getRevocationKey()))
+                .orElseThrow(() -> new UnauthorizedException("Token is not active"));
+        UserPrincipal principal = resolveActivePrincipal(verifiedToken)
+                .orElseThrow(() -> new UnauthorizedException("Token is not active"));
+
+        Instant expiresAt = Instant.now().plusMillis(verdictMaxTtlMillis);
+        if (verifiedToken.getExpiresAt() != null && verifiedToken.getExpiresAt().isBefore(expiresAt)) {
+            expiresAt = verifiedToken.getExpiresAt();
+        }
+        return VerdictResponse.builder()
+                .verdict(jwtService.generateVerdict(principal, verifiedToken, expiresAt))
+                .exp(expiresAt.getEpochSecond())
+                .build();
+    }
+
+    private IntrospectionResponse describe(VerifiedToken token) {
+        return resolveActivePrincipal(token)
+                .map(principal -> IntrospectionResponse.builder()
+                        .active(true)
+                        .tokenType(IntrospectionResponse.TOKEN_TYPE_ACCESS)
+                        .sub(token.getSubject())
+                        .username(token.getSubject())
+                        .exp(token.getExpiresAt() != null ? token.getExpiresAt().getEpochSecond() : null)
+                        .iat(token.getIssuedAt() != null ? token.getIssuedAt().getEpochSecond() : null)
+                        .jti(token.getTokenId())
+                        .uid(principal.getId())
+                        .accountType(principal.getAccountType())
+                        .authorities(principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                        .build())
+                .orElseGet(IntrospectionResponse::inactive);
+    }
+
+    // Refresh tokens are not credentials for other services
+    private Optional<VerifiedToken> verifyAccessToken(String token) {
+        return jwtService.verifyToken(token).filter(VerifiedToken::isAccessToken);
+    }
+
+    /**
+     * The checks JwtAuthenticationFilter applies after revocation, or empty if any fails.
+     */
+    private Optional<UserPrincipal> resolveActivePrincipal(VerifiedToken token) {
+        UserPrincipal principal;
+        try {
+            principal = userService.resolvePrincipal(token, jwtService.isStatelessAuthentication());
+        } catch (UsernameNotFoundException e) {
+            return Optional.empty();
+        }
+
+        if (!token.isIssuedTo(principal) || token.isExpired() || !principal.isEnabled()
+                || !token.isCurrentVersion(principal.getTokenVersion())) {
+            return Optional.empty();
+        }
+        return Optional.of(principal);
+    }
+}
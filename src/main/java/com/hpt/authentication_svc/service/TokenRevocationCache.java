@@ -0,0 +1,237 @@
+package com.hpt.authentication_svc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.hpt.authentication_svc.util.BloomFilter;
+import io.github.cdimascio.dotenv.Dotenv;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local revocation layer in front of the blacklisted_tokens collection.
+ *
+ * A Bloom filter answers "definitely not revoked" for almost every request without touching Mongo.
+ * Recently revoked tokens are also held exactly, each evicted when its expiresAt passes.
+ * Mongo is only consulted when the filter reports a possible hit that the exact set cannot confirm,
+ * and not even then while RevocationPropagationService keeps this node current and the exact set
+ * holds every live revocation.
+ *
+ * The filter is rebuilt periodically because Bloom filters cannot drop expired entries.
+ * Entries are keyed by revocation key (jti, or SHA-256 of legacy tokens), see VerifiedToken.
+ */
+@Slf4j
+@Service
+@DependsOn("blacklistedTokenMigration")
+public class TokenRevocationCache {
+
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final long bloomExpectedInsertions;
+    private final double bloomFalsePositiveRate;
+    private final long rebuildIntervalMillis;
+    private final Cache<String, Instant> recentlyRevoked;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile BloomFilter bloomFilter;
+    // Until the first full load completes, every lookup goes to Mongo
+    private volatile boolean ready = false;
+    // False once the size limit has pushed a live revocation out of the exact set
+    private volatile boolean exactSetComplete = true;
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    // Revocations from other nodes are known to have arrived up to this instant
+    private volatile Instant currentUntil = Instant.EPOCH;
+
+    public TokenRevocationCache(BlacklistedTokenRepository blacklistedTokenRepository, Dotenv dotenv) {
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.bloomExpectedInsertions = Long.parseLong(dotenv.get("REVOCATION_BLOOM_EXPECTED_INSERTIONS", "100000"));
+        this.bloomFalsePositiveRate = Double.parseDouble(dotenv.get("REVOCATION_BLOOM_FALSE_POSITIVE_RATE", "0.001"));
+        this.rebuildIntervalMillis = Long.parseLong(dotenv.get("REVOCATION_BLOOM_REBUILD_INTERVAL_MS", "3600000"));
+        this.recentlyRevoked = Caffeine.newBuilder()
+                .maximumSize(Long.parseLong(dotenv.get("REVOCATION_CACHE_MAX_SIZE", "100000")))
+                .expireAfter(new ExpireAtTokenExpiry())
+                .evictionListener((String tokenId, Instant expiresAt, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        sizeEvictions.incrementAndGet();
+                        exactSetComplete = false;
+                    }
+                })
+                .build();
+        this.bloomFilter = newBloomFilter();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Check whether a token has been revoked.
+     * Costs a Mongo query only on a Bloom filter hit that is not in the exact set,
+     * and only when this node cannot vouch that the exact set is complete and current.
+     */
+    public boolean isRevoked(String tokenId) {
+        Boolean revoked = isRevokedLocally(tokenId);
+        // False positive, or an entry dropped from the exact set by the size limit
+        return revoked != null ? revoked : blacklistedTokenRepository.existsByTokenId(tokenId);
+    }
+
+    /**
+     * Batch form of {@link #isRevoked(String)}: every id the local layers cannot settle
+     * is resolved by a single $in query.
+     *
+     * @return The revoked ids among the given ones
+     */
+    public Set<String> findRevoked(Collection<String> tokenIds) {
+        Set<String> revoked = new HashSet<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String tokenId : tokenIds) {
+            Boolean local = isRevokedLocally(tokenId);
+            if (local == null) {
+                unresolved.add(tokenId);
+            } else if (local) {
+                revoked.add(tokenId);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            blacklistedTokenRepository.findByTokenIdIn(unresolved)
+                    .forEach(blacklistedToken -> revoked.add(blacklistedToken.getTokenId()));
+        }
+        return revoked;
+    }
+
+    /**
+     * Answer from the Bloom filter and exact set, or null if only Mongo can tell.
+     */
+    private Boolean isRevokedLocally(String tokenId) {
+        if (!ready) {
+            return null;
+        }
+        if (!bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        if (recentlyRevoked.getIfPresent(tokenId) != null) {
+            return true;
+        }
+        if (exactSetComplete && Instant.now().isBefore(currentUntil)) {
+            // Bloom filter false positive
+            return false;
+        }
+        return null;
+    }
+
+    /**
+     * Called by the propagation subscriber while it is receiving revocations from other nodes.
+     * Until the given instant, a miss in the exact set is trusted without asking Mongo.
+     */
+    public void markCurrentUntil(Instant until) {
+        currentUntil = until;
+    }
+
+    /**
+     * Record a revocation that has been persisted to the blacklisted_tokens collection.
+     */
+    public void add(BlacklistedToken blacklistedToken) {
+        if (blacklistedToken.getTokenId() == null || blacklistedToken.getExpiresAt() == null
+                || blacklistedToken.getExpiresAt().isBefore(Instant.now())) {
+            return;
+        }
+        // Exact set first: rebuild() replays it after swapping filters, so no concurrent add is lost
+        recentlyRevoked.put(blacklistedToken.getTokenId(), blacklistedToken.getExpiresAt());
+        bloomFilter.put(blacklistedToken.getTokenId());
+    }
+
+    /**
+     * Replace the Bloom filter with one built from the live entries in Mongo, dropping expired tokens.
+     */
+    void rebuild() {
+        Instant startedAt = Instant.now();
+        long evictionsBefore = sizeEvictions.get();
+        List<BlacklistedToken> live = blacklistedTokenRepository.findByExpiresAtAfter(startedAt);
+
+        BloomFilter rebuilt = newBloomFilter();
+        for (BlacklistedToken blacklistedToken : live) {
+            if (blacklistedToken.getTokenId() == null) {
+                continue;
+            }
+            rebuilt.put(blacklistedToken.getTokenId());
+            recentlyRevoked.put(blacklistedToken.getTokenId(), blacklistedToken.getExpiresAt());
+        }
+        bloomFilter = rebuilt;
+        recentlyRevoked.asMap().keySet().forEach(rebuilt::put);
+        // Only now is the set complete again, unless the size limit evicted entries while it was reloaded.
+        // Until here lookups keep distrusting a set the previous build left incomplete.
+        recentlyRevoked.cleanUp();
+        if (sizeEvictions.get() == evictionsBefore) {
+            exactSetComplete = true;
+            // An eviction racing the write above must win
+            if (sizeEvictions.get() != evictionsBefore) {
+                exactSetComplete = false;
+            }
+        }
+        ready = true;
+
+        log.info("Rebuilt token revocation filter with {} live entries in {} ms",
+                live.size(), Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Failed to rebuild token revocation filter: {}", e.getMessage());
+        }
+    }
+
+    private BloomFilter newBloomFilter() {
+        return new BloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+    }
+
+    /**
+     * Evict each exact-set entry when the revoked token itself expires.
+     */
+    private static class ExpireAtTokenExpiry implements Expiry<String, Instant> {
+
+        @Override
+        public long expireAfterCreate(String tokenId, Instant expiresAt, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenId, expiresAt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,40 +1,138 @@
 package com.hpt.authentication_svc.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.hpt.authentication_svc.exception.ResourceNotFoundException;
 import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.model.UserAuthView;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.UserProfileView;
+import com.hpt.authentication_svc.model.VerifiedToken;
 import com.hpt.authentication_svc.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+
+    // Principals for JwtAuthenticationFilter, keyed by email and held without password hashes.
+    // Writes through save() invalidate locally; other instances see changes once the TTL expires.
+    private final Cache<String, UserPrincipal> principalCache;
+    // When each user's principal last changed on this instance, kept for an access token's lifetime.
+    // Stateless mode loads the user for tokens issued before it instead of trusting their claims.
+    private final Cache<String, Instant> principalChanges;
+
+    public UserService(UserRepository userRepository, MongoTemplate mongoTemplate,
+                       MeterRegistry meterRegistry, Dotenv dotenv) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(Long.parseLong(dotenv.get("USER_CACHE_MAX_SIZE", "10000")))
+                .expireAfterWrite(Duration.ofSeconds(Long.parseLong(dotenv.get("USER_CACHE_TTL_SECONDS", "60"))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "userPrincipals");
+        this.principalChanges = Caffeine.newBuilder()
+                .maximumSize(Long.parseLong(dotenv.get("USER_CACHE_MAX_SIZE", "10000")))
+                .expireAfterWrite(Duration.ofMillis(Long.parseLong(dotenv.get("JWT_ACCESS_TOKEN_EXPIRATION", "3600000"))))
+                .build();
+    }
 
     @Override
-    public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+    public UserPrincipal loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        // Handle OAuth users who may not have a password
-        String password = user.getPassword() != null ? user.getPassword() : "";
-
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                password,
-                user.isEnabled(),
-                true,
-                true,
-                true,
-                new ArrayList<>()
+        return UserPrincipal.from(user);
+    }
+
+    /**
+     * Store a rehashed password after login, when the stored hash uses an outdated algorithm or cost.
+     * Called by DaoAuthenticationProvider; only the password field is written.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("email").is(user.getUsername())),
+                new Update().set("password", newPassword),
+                User.class
         );
+        evictPrincipal(user.getUsername());
+
+        if (user instanceof UserPrincipal principal) {
+            return principal.toBuilder().password(newPassword).build();
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    /**
+     * Load the principal for an authenticated request, from cache when possible.
+     * Use loadUserByUsername instead wherever the password hash is needed.
+     */
+    public UserPrincipal loadCachedPrincipal(String email) throws UsernameNotFoundException {
+        // A cache miss reads the auth projection only: no password hash or profile fields to decode
+        return principalCache.get(email, key -> userRepository.findAuthViewByEmail(key)
+                .map(UserPrincipal::from)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + key)));
+    }
+
+    /**
+     * Return the cached principal without loading it, or null if it is not cached.
+     */
+    public UserPrincipal getCachedPrincipal(String email) {
+        return principalCache.getIfPresent(email);
+    }
+
+    /**
+     * Resolve the principal a verified token was issued to.
+     * With trustClaims (stateless mode), build it from verified claims with no database access.
+     * Tokens issued before a change made on this instance (revoke-all, password change, disabling)
+     * are checked against the loaded principal instead; changes made on other instances are only
+     * seen once the token expires. Tokens issued without the principal claims are always loaded.
+     */
+    public UserPrincipal resolvePrincipal(VerifiedToken token, boolean trustClaims) {
+        if (trustClaims) {
+            UserPrincipal principal = token.toPrincipal();
+            if (principal != null && !issuedBeforeChange(token)) {
+                UserPrincipal cached = getCachedPrincipal(token.getSubject());
+                return cached != null ? cached : principal;
+            }
+        }
+        return loadCachedPrincipal(token.getSubject());
+    }
+
+    /**
+     * Drop a cached principal after the user's password, account type, provider or token version changed,
+     * and stop trusting the claims of tokens issued before now.
+     */
+    public void evictPrincipal(String email) {
+        principalChanges.put(email, Instant.now());
+        principalCache.invalidate(email);
+    }
+
+    private boolean issuedBeforeChange(VerifiedToken token) {
+        Instant changedAt = principalChanges.getIfPresent(token.getSubject());
+        // iat has whole seconds, so a token issued in the same second as the change is loaded too
+        return changedAt != null && (token.getIssuedAt() == null || !token.getIssuedAt().isAfter(changedAt));
     }
 
     public User findByEmail(String email) {
@@ -50,17 +148,40 @@ public class UserService implements UserDetailsService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Profile fields only, for read-only views such as /me.
+     */
+    public UserProfileView findProfileByEmail(String email) {
+        return userRepository.findProfileViewByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
+    }
+
     public User findById(String id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
     }
 
     public boolean existsByEmail(String email) {
-        return userRepository.existsByEmail(email);
+        return userRepository.findRegisteredEmail(email).isPresent();
     }
 
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Covers changePassword, upgradeAccount and Google account linking, which all save through here
+        evictPrincipal(saved.getEmail());
+        return saved;
+    }
+
+    /**
+     * Revoke every outstanding token of a user with a single atomic increment of its token version.
+     */
+    public void incrementTokenVersion(String email) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("email").is(email)),
+                new Update().inc("tokenVersion", 1),
+                User.class
+        );
+        evictPrincipal(email);
     }
 }
 
@@ -0,0 +1,123 @@
+package com.hpt.authentication_svc.util;
+
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal circuit breaker for calls to an external HTTP endpoint.
+ *
+ * After {@code failureThreshold} consecutive transient failures (connection errors, timeouts, 5xx, 429)
+ * the circuit opens and calls fail immediately with ServiceUnavailableException. Once
+ * {@code openDuration} has passed a single trial call is let through; its outcome closes or re-opens
+ * the circuit. Client errors such as 400 mean the endpoint answered and count as successes.
+ * A cancelled call says nothing about the endpoint and is not counted; a cancelled trial call only
+ * frees the trial slot for the next caller. Timeouts reach the breaker as errors from the HTTP client.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Run the call through the breaker, failing fast while the circuit is open.
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            State acquiredIn = tryAcquire();
+            if (acquiredIn == null) {
+                return Mono.error(new ServiceUnavailableException(name + " is temporarily unavailable"));
+            }
+            return call
+                    .doOnSuccess(value -> onSuccess())
+                    .doOnError(e -> {
+                        if (isTransientFailure(e)) {
+                            onFailure();
+                        } else {
+                            onSuccess();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (acquiredIn == State.HALF_OPEN) {
+                            releaseTrial();
+                        }
+                    });
+        });
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Errors worth retrying and counting against the endpoint's health.
+     */
+    public static boolean isTransientFailure(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode().value() == 429;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    /**
+     * @return The state the call was admitted in, CLOSED or HALF_OPEN for the trial call, or null if rejected
+     */
+    private State tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return State.CLOSED;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAtNanos >= openDuration.toNanos()
+                // Only one caller wins the transition and becomes the trial call
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return State.HALF_OPEN;
+        }
+        return null;
+    }
+
+    private void releaseTrial() {
+        // openedAtNanos is already past openDuration, so the next caller becomes the trial call
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Circuit {} closed", name);
+        }
+    }
+
+    private void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos = System.nanoTime();
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                log.warn("Circuit {} opened for {} ms", name, openDuration.toMillis());
+            }
+        }
+    }
+}
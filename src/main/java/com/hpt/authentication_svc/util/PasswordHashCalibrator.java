@@ -0,0 +1,76 @@
+package com.hpt.authentication_svc.util;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Command-line tool that measures password hashing cost on the current host and recommends settings
+ * that meet a target hash time. Run it on the production instance type, then set the
+ * PASSWORD_BCRYPT_COST or PASSWORD_ARGON2_* values it prints; existing hashes are upgraded on login.
+ *
+ * Usage, from the packaged jar:
+ * java -cp app.jar -Dloader.main=com.hpt.authentication_svc.util.PasswordHashCalibrator \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher [targetMillis] [argon2MemoryKb]
+ */
+public final class PasswordHashCalibrator {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123!";
+
+    private PasswordHashCalibrator() {
+    }
+
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        int argon2MemoryKb = args.length > 1 ? Integer.parseInt(args[1]) : 16384;
+
+        System.out.printf("Target hash time: %d ms, %d cores%n%n", targetMillis, Runtime.getRuntime().availableProcessors());
+
+        int bcryptCost = recommend("bcrypt cost", 8, 15, targetMillis, BCryptPasswordEncoder::new);
+        int argon2Iterations = recommend("argon2 iterations (" + argon2MemoryKb + " KB)", 1, 10, targetMillis,
+                iterations -> new Argon2PasswordEncoder(16, 32, 1, argon2MemoryKb, iterations));
+
+        System.out.println();
+        System.out.println("Recommended settings:");
+        System.out.println("  PASSWORD_BCRYPT_COST=" + bcryptCost);
+        System.out.println("  PASSWORD_ARGON2_MEMORY_KB=" + argon2MemoryKb);
+        System.out.println("  PASSWORD_ARGON2_ITERATIONS=" + argon2Iterations);
+    }
+
+    /**
+     * Measure each cost from min to max and return the highest whose median hash time meets the target.
+     * Stops early once a cost exceeds the target, since higher costs are only slower.
+     */
+    static int recommend(String label, int minCost, int maxCost, long targetMillis,
+                         IntFunction<PasswordEncoder> encoderForCost) {
+        int recommended = minCost;
+        for (int cost = minCost; cost <= maxCost; cost++) {
+            double medianMillis = medianHashMillis(encoderForCost.apply(cost));
+            System.out.printf("%-32s %2d: %8.1f ms%n", label, cost, medianMillis);
+            if (medianMillis > targetMillis) {
+                break;
+            }
+            recommended = cost;
+        }
+        return recommended;
+    }
+
+    private static double medianHashMillis(PasswordEncoder encoder) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            encoder.encode(SAMPLE_PASSWORD);
+        }
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long startedAt = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hpt.authentication_svc.benchmark;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Shared setup for benchmarks that need the services' Dotenv-based configuration.
+ */
+final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Build a Dotenv backed by a temporary .env file with a random 512-bit JWT secret.
+	 */
+	static Dotenv dotenv(String... extraEntries) throws IOException {
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+
+		StringBuilder env = new StringBuilder()
+				.append("JWT_SECRET=").append(Base64.getEncoder().encodeToString(secret)).append('\n');
+		for (String entry : extraEntries) {
+			env.append(entry).append('\n');
+		}
+
+		Path directory = Files.createTempDirectory("benchmark-env");
+		Files.writeString(directory.resolve(".env"), env);
+		directory.resolve(".env").toFile().deleteOnExit();
+		directory.toFile().deleteOnExit();
+
+		return Dotenv.configure()
+				.directory(directory.toString())
+				.load();
+	}
+}
@@ -0,0 +1,134 @@
+package com.hpt.authentication_svc.benchmark;
+
+import com.hpt.authentication_svc.config.GoogleOAuthConfig;
+import com.hpt.authentication_svc.config.WebClientConfig;
+import com.hpt.authentication_svc.service.GoogleIdTokenVerifier;
+import com.hpt.authentication_svc.service.GoogleJwksProvider;
+import com.hpt.authentication_svc.service.GoogleOAuthService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test comparing concurrent Google logins on platform threads and virtual threads.
+ *
+ * A local stub stands in for Google's token and userinfo endpoints with a fixed response delay.
+ * Both runs call GoogleOAuthService's blocking code exchange and userinfo methods, the same way a
+ * Tomcat request thread does; the platform run is capped at Tomcat's default of 200 threads.
+ *
+ * Usage: main [concurrentLogins=2000] [googleLatencyMillis=200] [platformThreads=200]
+ */
+public class GoogleLoginLoadHarness {
+
+	public static void main(String[] args) throws Exception {
+		int concurrentLogins = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long googleLatencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+		int platformThreads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+		HttpServer stubGoogle = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+		stubGoogle.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		stubGoogle.createContext("/token", exchange -> respond(exchange, googleLatencyMillis,
+				"{\"access_token\":\"stub-access-token\",\"token_type\":\"Bearer\",\"expires_in\":3599}"));
+		stubGoogle.createContext("/userinfo", exchange -> respond(exchange, googleLatencyMillis,
+				"{\"sub\":\"1234567890\",\"email\":\"load@example.com\",\"given_name\":\"Load\",\"family_name\":\"Test\"}"));
+		stubGoogle.start();
+
+		try {
+			String baseUri = "http://127.0.0.1:" + stubGoogle.getAddress().getPort();
+			// Pool sized to the load so the comparison measures threading models, not connection limits
+			GoogleOAuthConfig googleOAuthConfig = new GoogleOAuthConfig(BenchmarkSupport.dotenv(
+					"GOOGLE_TOKEN_URI=" + baseUri + "/token",
+					"GOOGLE_USERINFO_URI=" + baseUri + "/userinfo",
+					"GOOGLE_HTTP_MAX_CONNECTIONS=" + concurrentLogins,
+					"GOOGLE_HTTP_MAX_PENDING_ACQUIRES=" + concurrentLogins,
+					"GOOGLE_HTTP_PENDING_ACQUIRE_TIMEOUT_MS=60000",
+					"GOOGLE_HTTP_RESPONSE_TIMEOUT_MS=60000"));
+			WebClientConfig webClientConfig = new WebClientConfig();
+			ConnectionProvider connectionProvider = webClientConfig.googleOAuthConnectionProvider(googleOAuthConfig);
+			WebClient googleOAuthWebClient = webClientConfig.googleOAuthWebClient(
+					webClientConfig.webClientBuilder(), googleOAuthConfig, connectionProvider);
+			// The stub token endpoint returns no id_token, so every login also calls userinfo
+			GoogleOAuthService googleOAuthService = new GoogleOAuthService(
+					googleOAuthConfig,
+					googleOAuthWebClient,
+					new SimpleMeterRegistry(),
+					new GoogleIdTokenVerifier(googleOAuthConfig,
+							new GoogleJwksProvider(googleOAuthConfig, googleOAuthWebClient)));
+
+			System.out.printf("%d concurrent Google logins, %d ms stub latency per call%n%n",
+					concurrentLogins, googleLatencyMillis);
+			// Warm up connections and JIT before measuring
+			run("warmup", Executors.newVirtualThreadPerTaskExecutor(), googleOAuthService, 200);
+			run("platform threads (" + platformThreads + ")", Executors.newFixedThreadPool(platformThreads),
+					googleOAuthService, concurrentLogins);
+			run("virtual threads", Executors.newVirtualThreadPerTaskExecutor(),
+					googleOAuthService, concurrentLogins);
+			connectionProvider.dispose();
+		} finally {
+			stubGoogle.stop(0);
+		}
+	}
+
+	private static void run(String label, ExecutorService executor, GoogleOAuthService googleOAuthService,
+							int logins) throws Exception {
+		long[] latencies = new long[logins];
+		Future<?>[] futures = new Future<?>[logins];
+		long startedAt = System.nanoTime();
+
+		for (int i = 0; i < logins; i++) {
+			int index = i;
+			long submittedAt = System.nanoTime();
+			futures[i] = executor.submit(() -> {
+				var tokenResponse = googleOAuthService.exchangeCodeForToken("stub-code", "http://localhost/callback");
+				googleOAuthService.getUserInfo(tokenResponse.getAccessToken());
+				latencies[index] = System.nanoTime() - submittedAt;
+			});
+		}
+		int failures = 0;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (Exception e) {
+				failures++;
+			}
+		}
+		long elapsed = System.nanoTime() - startedAt;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+
+		Arrays.sort(latencies);
+		System.out.printf("%-28s %8.0f logins/s   p50 %6d ms   p99 %6d ms   failures %d%n",
+				label,
+				logins / (elapsed / 1_000_000_000.0),
+				TimeUnit.NANOSECONDS.toMillis(latencies[logins / 2]),
+				TimeUnit.NANOSECONDS.toMillis(latencies[(int) (logins * 0.99)]),
+				failures);
+	}
+
+	private static void respond(HttpExchange exchange, long latencyMillis, String json) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
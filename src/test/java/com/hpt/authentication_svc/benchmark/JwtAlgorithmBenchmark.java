@@ -0,0 +1,87 @@
+package com.hpt.authentication_svc.benchmark;
+
+import com.hpt.authentication_svc.model.VerifiedToken;
+import com.hpt.authentication_svc.service.JwtService;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of an access token per signing algorithm.
+ * HS512 is the shared-secret default; ES256 and EdDSA let other services verify with the public key only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtAlgorithmBenchmark {
+
+	@Param({"HS512", "ES256", "EdDSA"})
+	private String algorithm;
+
+	private JwtService jwtService;
+	private UserDetails userDetails;
+	private String token;
+
+	@Setup
+	public void setUp() throws IOException {
+		jwtService = new JwtService(algorithm.equals("HS512")
+				? BenchmarkSupport.dotenv()
+				: BenchmarkSupport.dotenv(signingKeyEntries(algorithm)));
+		userDetails = User.withUsername("benchmark@example.com")
+				.password("")
+				.build();
+		token = jwtService.generateAccessToken(userDetails);
+	}
+
+	@Benchmark
+	public String sign() {
+		return jwtService.generateAccessToken(userDetails);
+	}
+
+	@Benchmark
+	public Optional<VerifiedToken> verify() {
+		return jwtService.verifyToken(token);
+	}
+
+	private static String[] signingKeyEntries(String algorithm) {
+		KeyPair keyPair = algorithm.equals("ES256")
+				? Jwts.SIG.ES256.keyPair().build()
+				: Jwts.SIG.Ed25519.keyPair().build();
+		return new String[] {
+				"JWT_SIGNING_ALGORITHM=" + algorithm,
+				"JWT_SIGNING_PRIVATE_KEY=" + Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()),
+				"JWT_SIGNING_PUBLIC_KEY=" + Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+		};
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtAlgorithmBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,66 @@
+package com.hpt.authentication_svc.benchmark;
+
+import com.hpt.authentication_svc.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuance throughput, as paid on every login and refresh (one access plus one refresh token).
+ * Runs with several threads to exercise the shared key and parser.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtIssuanceBenchmark {
+
+	private JwtService jwtService;
+	private UserDetails userDetails;
+	private final String familyId = UUID.randomUUID().toString();
+
+	@Setup
+	public void setUp() throws IOException {
+		jwtService = new JwtService(BenchmarkSupport.dotenv());
+		userDetails = User.withUsername("benchmark@example.com")
+				.password("")
+				.build();
+	}
+
+	@Benchmark
+	public String accessToken() {
+		return jwtService.generateAccessToken(userDetails);
+	}
+
+	@Benchmark
+	public String tokenPair() {
+		return jwtService.generateAccessToken(userDetails)
+				+ jwtService.generateRefreshToken(userDetails, familyId, UUID.randomUUID().toString());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtIssuanceBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,90 @@
+package com.hpt.authentication_svc.benchmark;
+
+import com.hpt.authentication_svc.service.JwtService;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JWT validation in JwtAuthenticationFilter.
+ *
+ * multiParse reproduces the old filter sequence (validateToken, extractUsername, isTokenValid),
+ * which verified the HS512 signature four times, with a parser of its own since those methods
+ * are gone. singleParse is the current path through JwtService.verifyToken.
+ *
+ * Run with: mvn test-compile, then execute main() with the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtValidationBenchmark {
+
+	private JwtService jwtService;
+	private JwtParser legacyParser;
+	private UserDetails userDetails;
+	private String token;
+
+	@Setup
+	public void setUp() throws IOException {
+		Dotenv dotenv = BenchmarkSupport.dotenv();
+		jwtService = new JwtService(dotenv);
+		legacyParser = Jwts.parser()
+				.verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(dotenv.get("JWT_SECRET"))))
+				.build();
+		userDetails = User.withUsername("benchmark@example.com")
+				.password("")
+				.build();
+		token = jwtService.generateAccessToken(userDetails);
+	}
+
+	@Benchmark
+	public boolean multiParse() {
+		legacyParser.parseSignedClaims(token);
+		String subject = parse().getSubject();
+		return subject != null
+				&& parse().getSubject().equals(userDetails.getUsername())
+				&& parse().getExpiration().after(new Date());
+	}
+
+	@Benchmark
+	public boolean singleParse() {
+		return jwtService.verifyToken(token)
+				.map(verified -> verified.isIssuedTo(userDetails) && !verified.isExpired())
+				.orElse(false);
+	}
+
+	private Claims parse() {
+		return legacyParser.parseSignedClaims(token).getPayload();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtValidationBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,106 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.util.HashUtils;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlacklistedTokenMigrationTest {
+
+	private static final String COLLECTION = "blacklisted_tokens";
+
+	private MongoTemplate mongoTemplate;
+	private IndexOperations indexOperations;
+	private BlacklistedTokenMigration migration;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		indexOperations = mock(IndexOperations.class);
+		when(mongoTemplate.indexOps(COLLECTION)).thenReturn(indexOperations);
+		when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION))).thenReturn(List.of());
+		migration = new BlacklistedTokenMigration(mongoTemplate);
+	}
+
+	@Test
+	void createsTokenIdIndexBeforeDroppingLegacyIndex() {
+		IndexInfo legacyIndex = mock(IndexInfo.class);
+		when(legacyIndex.getName()).thenReturn("token");
+		when(legacyIndex.isIndexForFields(anyList())).thenAnswer(invocation -> invocation.getArgument(0).equals(List.of("token")));
+		when(indexOperations.getIndexInfo()).thenReturn(List.of(legacyIndex));
+
+		migration.migrate();
+
+		ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+		InOrder order = inOrder(indexOperations);
+		order.verify(indexOperations).createIndex(created.capture());
+		order.verify(indexOperations).dropIndex("token");
+
+		assertThat(created.getValue().getIndexKeys()).containsEntry("tokenId", 1);
+		assertThat(created.getValue().getIndexOptions())
+				.containsEntry("name", "tokenId")
+				.containsEntry("unique", true)
+				.containsEntry("sparse", true);
+	}
+
+	@Test
+	void keepsOtherIndexes() {
+		IndexInfo expiresAtIndex = mock(IndexInfo.class);
+		when(expiresAtIndex.isIndexForFields(anyList())).thenReturn(false);
+		when(indexOperations.getIndexInfo()).thenReturn(List.of(expiresAtIndex));
+
+		migration.migrate();
+
+		verify(indexOperations, never()).dropIndex(any());
+	}
+
+	@Test
+	void replacesTokenStringWithItsHash() {
+		when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+				.thenReturn(List.of(new Document("_id", "doc-1").append("token", "header.payload.signature")));
+
+		migration.migrate();
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(COLLECTION));
+		Document updateObject = update.getValue().getUpdateObject();
+		assertThat(updateObject.get("$set", Document.class))
+				.containsEntry("tokenId", HashUtils.sha256Hex("header.payload.signature"));
+		assertThat(updateObject.get("$unset", Document.class)).containsKey("token");
+	}
+
+	@Test
+	void removesLegacyDocumentAlreadyRevokedUnderItsTokenId() {
+		when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(COLLECTION)))
+				.thenReturn(List.of(new Document("_id", "doc-1").append("token", "header.payload.signature")));
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+				.thenThrow(new DuplicateKeyException("tokenId"));
+
+		migration.migrate();
+
+		ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).remove(removed.capture(), eq(COLLECTION));
+		assertThat(removed.getValue().getQueryObject()).containsEntry("_id", "doc-1");
+	}
+}
@@ -0,0 +1,90 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private SimpleMeterRegistry meterRegistry;
+	private PasswordEncoder delegate;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		delegate = mock(PasswordEncoder.class);
+		// Every hash blocks until the test releases it
+		when(delegate.matches(any(), anyString())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return true;
+		});
+	}
+
+	@AfterEach
+	void releaseHashes() {
+		release.countDown();
+	}
+
+	@Test
+	void rejectsWhenPoolAndQueueAreFull() throws Exception {
+		try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, 10_000, meterRegistry)) {
+			CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "hash"));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "hash"));
+			awaitQueueDepth(1);
+
+			assertThatThrownBy(() -> encoder.matches("c", "hash"))
+					.isInstanceOf(ServiceUnavailableException.class);
+			assertThat(meterRegistry.get("auth.password.hash.rejected").counter().count()).isEqualTo(1);
+
+			release.countDown();
+			assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+
+	@Test
+	void rejectsWhenWaitExceedsLimit() throws Exception {
+		try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, 50, meterRegistry)) {
+			CompletableFuture.runAsync(() -> encoder.matches("a", "hash"));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+			assertThatThrownBy(() -> encoder.matches("b", "hash"))
+					.isInstanceOf(ServiceUnavailableException.class);
+			assertThat(meterRegistry.get("auth.password.hash.rejected").counter().count()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void upgradeEncodingDoesNotQueue() {
+		when(delegate.upgradeEncoding("hash")).thenReturn(true);
+		try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, 50, meterRegistry)) {
+			assertThat(encoder.upgradeEncoding("hash")).isTrue();
+		}
+	}
+
+	private void awaitQueueDepth(int depth) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (meterRegistry.get("auth.password.hash.queue.depth").gauge().value() < depth) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+}
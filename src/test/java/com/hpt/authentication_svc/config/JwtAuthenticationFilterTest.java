@@ -0,0 +1,194 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.model.UserAuthView;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.repository.UserRepository;
+import com.hpt.authentication_svc.service.JwtService;
+import com.hpt.authentication_svc.service.TokenRevocationCache;
+import com.hpt.authentication_svc.service.UserService;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which access tokens JwtAuthenticationFilter turns into an authenticated request.
+ */
+class JwtAuthenticationFilterTest {
+
+	private static final String EMAIL = "user@example.com";
+
+	private Dotenv dotenv;
+	private UserRepository userRepository;
+	private User storedUser;
+
+	@BeforeEach
+	void setUp() {
+		dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		when(dotenv.get("JWT_SECRET")).thenReturn(Base64.getEncoder().encodeToString(secret));
+
+		userRepository = mock(UserRepository.class);
+		storedUser = User.builder()
+				.id("user-1")
+				.email(EMAIL)
+				.password("hash")
+				.build();
+		when(userRepository.findAuthViewByEmail(EMAIL)).thenAnswer(invocation -> Optional.of(
+				new SpelAwareProxyProjectionFactory().createProjection(UserAuthView.class, storedUser)));
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void tokenIssuedBeforeTokenVersionBumpIsRejected() throws Exception {
+		JwtService jwtService = new JwtService(dotenv);
+		UserService userService = newUserService();
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userService, mock(TokenRevocationCache.class));
+		String issuedBefore = jwtService.generateAccessToken(UserPrincipal.from(storedUser));
+
+		assertThat(authenticate(filter, issuedBefore)).isNotNull();
+
+		// Password change or revoke-all: the stored version moves on and the cached principal is dropped
+		storedUser.setTokenVersion(1);
+		userService.incrementTokenVersion(EMAIL);
+
+		assertThat(authenticate(filter, issuedBefore)).isNull();
+		assertThat(authenticate(filter, jwtService.generateAccessToken(UserPrincipal.from(storedUser)))).isNotNull();
+	}
+
+	@Test
+	void repeatedRequestsLoadPrincipalOnce() throws Exception {
+		JwtService jwtService = new JwtService(dotenv);
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, newUserService(), mock(TokenRevocationCache.class));
+		String token = jwtService.generateAccessToken(UserPrincipal.from(storedUser));
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(authenticate(filter, token)).isNotNull();
+		}
+		verify(userRepository, times(1)).findAuthViewByEmail(EMAIL);
+	}
+
+	@Test
+	void savingUserEvictsCachedPrincipal() throws Exception {
+		JwtService jwtService = new JwtService(dotenv);
+		UserService userService = newUserService();
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userService, mock(TokenRevocationCache.class));
+		String token = jwtService.generateAccessToken(UserPrincipal.from(storedUser));
+		assertThat(authenticate(filter, token)).isNotNull();
+
+		storedUser.setEnabled(false);
+		when(userRepository.save(storedUser)).thenReturn(storedUser);
+		userService.save(storedUser);
+
+		assertThat(authenticate(filter, token)).isNull();
+		verify(userRepository, times(2)).findAuthViewByEmail(EMAIL);
+	}
+
+	@Test
+	void statelessModeTrustsVerifiedClaimsWithoutLoadingUser() throws Exception {
+		when(dotenv.get("JWT_STATELESS_AUTH_ENABLED", "false")).thenReturn("true");
+		JwtService jwtService = new JwtService(dotenv);
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, newUserService(), mock(TokenRevocationCache.class));
+
+		Authentication authentication = authenticate(filter, jwtService.generateAccessToken(UserPrincipal.from(storedUser)));
+
+		assertThat(authentication).isNotNull();
+		assertThat(((UserPrincipal) authentication.getPrincipal()).getId()).isEqualTo("user-1");
+		verifyNoInteractions(userRepository);
+	}
+
+	@Test
+	void statelessModeRejectsTokenIssuedBeforeRevokeAll() throws Exception {
+		when(dotenv.get("JWT_STATELESS_AUTH_ENABLED", "false")).thenReturn("true");
+		JwtService jwtService = new JwtService(dotenv);
+		UserService userService = newUserService();
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userService, mock(TokenRevocationCache.class));
+		String issuedBefore = jwtService.generateAccessToken(UserPrincipal.from(storedUser));
+		assertThat(authenticate(filter, issuedBefore)).isNotNull();
+
+		storedUser.setTokenVersion(1);
+		userService.incrementTokenVersion(EMAIL);
+
+		// Rejected on every request, not just until the cached principal expires
+		assertThat(authenticate(filter, issuedBefore)).isNull();
+		assertThat(authenticate(filter, issuedBefore)).isNull();
+	}
+
+	@Test
+	void statelessModeRejectsTokenIssuedBeforeDisablingUser() throws Exception {
+		when(dotenv.get("JWT_STATELESS_AUTH_ENABLED", "false")).thenReturn("true");
+		JwtService jwtService = new JwtService(dotenv);
+		UserService userService = newUserService();
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userService, mock(TokenRevocationCache.class));
+		String issuedBefore = jwtService.generateAccessToken(UserPrincipal.from(storedUser));
+
+		storedUser.setEnabled(false);
+		when(userRepository.save(storedUser)).thenReturn(storedUser);
+		userService.save(storedUser);
+
+		assertThat(authenticate(filter, issuedBefore)).isNull();
+	}
+
+	@Test
+	void statelessModeLoadsUserForTokensWithoutPrincipalClaims() throws Exception {
+		when(dotenv.get("JWT_STATELESS_AUTH_ENABLED", "false")).thenReturn("true");
+		JwtService jwtService = new JwtService(dotenv);
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, newUserService(), mock(TokenRevocationCache.class));
+		String token = jwtService.generateAccessToken(org.springframework.security.core.userdetails.User
+				.withUsername(EMAIL)
+				.password("hash")
+				.build());
+
+		assertThat(authenticate(filter, token)).isNotNull();
+		verify(userRepository, times(1)).findAuthViewByEmail(EMAIL);
+	}
+
+	@Test
+	void refreshTokenIsNotAcceptedAsBearerToken() throws Exception {
+		JwtService jwtService = new JwtService(dotenv);
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, newUserService(), mock(TokenRevocationCache.class));
+
+		String refreshToken = jwtService.generateRefreshToken(UserPrincipal.from(storedUser), "family-1", "jti-1");
+
+		assertThat(authenticate(filter, refreshToken)).isNull();
+	}
+
+	private UserService newUserService() {
+		return new UserService(userRepository, mock(MongoTemplate.class), new SimpleMeterRegistry(), dotenv);
+	}
+
+	private static Authentication authenticate(JwtAuthenticationFilter filter, String token) throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Authorization", "Bearer " + token);
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		return SecurityContextHolder.getContext().getAuthentication();
+	}
+}
@@ -0,0 +1,107 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.model.LoginAttempt;
+import com.hpt.authentication_svc.model.RefreshTokenFamily;
+import com.hpt.authentication_svc.model.User;
+import com.mongodb.ExplainVerbosity;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Starts MongoConfig against a real MongoDB and checks that the annotated indexes exist.
+ * Skipped where Docker is unavailable.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringJUnitConfig(MongoIndexCreationTest.TestConfig.class)
+class MongoIndexCreationTest {
+
+	@Container
+	static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+	@Configuration
+	@Import(MongoConfig.class)
+	static class TestConfig {
+
+		@Bean
+		Dotenv dotenv() {
+			Dotenv dotenv = mock(Dotenv.class);
+			when(dotenv.get("MONGODB_URI")).thenReturn(MONGO.getReplicaSetUrl());
+			return dotenv;
+		}
+	}
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Test
+	void userEmailIsUnique() {
+		assertThat(index(User.class, "email").isUnique()).isTrue();
+
+		mongoTemplate.insert(User.builder().email("duplicate@example.com").build());
+		assertThatThrownBy(() -> mongoTemplate.insert(User.builder().email("duplicate@example.com").build()))
+				.isInstanceOf(DuplicateKeyException.class);
+	}
+
+	@Test
+	void registeredEmailLookupIsCoveredByEmailIndex() {
+		mongoTemplate.insert(User.builder().email("covered@example.com").password("hash").build());
+
+		// Same filter and projection as UserRepository#findRegisteredEmail
+		Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+				.find(new Document("email", "covered@example.com"))
+				.projection(new Document("_id", 0).append("email", 1))
+				.explain(ExplainVerbosity.EXECUTION_STATS);
+
+		Document executionStats = explain.get("executionStats", Document.class);
+		assertThat(executionStats.getInteger("nReturned")).isEqualTo(1);
+		assertThat(executionStats.getInteger("totalDocsExamined")).isZero();
+	}
+
+	@Test
+	void blacklistedTokenIdIsUniqueAndSparse() {
+		IndexInfo tokenId = index(BlacklistedToken.class, "tokenId");
+		assertThat(tokenId.isUnique()).isTrue();
+		assertThat(tokenId.isSparse()).isTrue();
+		assertThat(index(BlacklistedToken.class, "blacklistedAt")).isNotNull();
+	}
+
+	@Test
+	void expiringCollectionsHaveTtlIndexes() {
+		for (Class<?> type : List.of(BlacklistedToken.class, RefreshTokenFamily.class, LoginAttempt.class)) {
+			assertThat(index(type, "expiresAt").getExpireAfter()).contains(Duration.ZERO);
+		}
+	}
+
+	@Test
+	void refreshTokenFamiliesAreIndexedByUser() {
+		assertThat(index(RefreshTokenFamily.class, "userId", "lastUsedAt")).isNotNull();
+	}
+
+	private IndexInfo index(Class<?> type, String... fields) {
+		return mongoTemplate.indexOps(type).getIndexInfo().stream()
+				.filter(index -> index.isIndexForFields(List.of(fields)))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("No index on " + List.of(fields) + " for " + type.getSimpleName()));
+	}
+}
@@ -0,0 +1,88 @@
+package com.hpt.authentication_svc.config;
+
+import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.repository.UserRepository;
+import com.hpt.authentication_svc.service.UserService;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hashes in an outdated format are replaced on the next successful login, through the
+ * encoder and provider SecurityConfig builds.
+ */
+class PasswordHashUpgradeTest {
+
+	private static final String EMAIL = "user@example.com";
+	private static final String PASSWORD = "secret-password";
+
+	private MongoTemplate mongoTemplate;
+	private User storedUser;
+	private PasswordEncoder passwordEncoder;
+	private AuthenticationManager authenticationManager;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("PASSWORD_HASH_ALGORITHM", "bcrypt")).thenReturn("argon2");
+		// Cheap argon2 settings; only the format matters here
+		when(dotenv.get("PASSWORD_ARGON2_MEMORY_KB", "16384")).thenReturn("1024");
+		when(dotenv.get("PASSWORD_ARGON2_ITERATIONS", "2")).thenReturn("1");
+
+		UserRepository userRepository = mock(UserRepository.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		storedUser = User.builder().id("user-1").email(EMAIL).build();
+		when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(storedUser));
+		UserService userService = new UserService(userRepository, mongoTemplate, new SimpleMeterRegistry(), dotenv);
+
+		SecurityConfig securityConfig = new SecurityConfig(mock(JwtAuthenticationFilter.class), userService,
+				dotenv, new SimpleMeterRegistry());
+		passwordEncoder = securityConfig.passwordEncoder();
+		authenticationManager = new ProviderManager(securityConfig.authenticationProvider());
+	}
+
+	@Test
+	void unprefixedBcryptHashIsUpgradedToArgon2OnLogin() {
+		storedUser.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+		authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(User.class));
+		String upgraded = update.getValue().getUpdateObject().get("$set", Document.class).getString("password");
+		assertThat(upgraded).startsWith("{argon2}");
+		assertThat(passwordEncoder.matches(PASSWORD, upgraded)).isTrue();
+	}
+
+	@Test
+	void currentHashIsLeftAlone() {
+		storedUser.setPassword(passwordEncoder.encode(PASSWORD));
+
+		authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+	}
+}
@@ -0,0 +1,324 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.dto.request.ChangePasswordRequest;
+import com.hpt.authentication_svc.dto.request.GoogleAuthRequest;
+import com.hpt.authentication_svc.dto.request.GoogleIdTokenRequest;
+import com.hpt.authentication_svc.dto.request.LoginRequest;
+import com.hpt.authentication_svc.dto.request.RefreshTokenRequest;
+import com.hpt.authentication_svc.dto.request.RegisterRequest;
+import com.hpt.authentication_svc.dto.response.AuthResponse;
+import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
+import com.hpt.authentication_svc.dto.response.UserProfileResponse;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import com.hpt.authentication_svc.exception.UnauthorizedException;
+import com.hpt.authentication_svc.model.AuthProvider;
+import com.hpt.authentication_svc.model.RefreshTokenFamily;
+import com.hpt.authentication_svc.model.User;
+import com.hpt.authentication_svc.model.UserAuthView;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.UserProfileView;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.hpt.authentication_svc.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts how many UserRepository calls each AuthService flow makes.
+ * Login goes through a real DaoAuthenticationProvider so its user lookup is counted too.
+ */
+class AuthServiceRepositoryCallsTest {
+
+	private static final String EMAIL = "user@example.com";
+	private static final String PASSWORD = "secret-password";
+	private static final String CLIENT_IP = "203.0.113.7";
+
+	private UserRepository userRepository;
+	private GoogleOAuthService googleOAuthService;
+	private JwtService jwtService;
+	private UserService userService;
+	private RegisteredEmailFilter registeredEmailFilter;
+	private AuthService authService;
+	private User storedUser;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		when(dotenv.get("JWT_SECRET")).thenReturn(Base64.getEncoder().encodeToString(secret));
+
+		userRepository = mock(UserRepository.class);
+		googleOAuthService = mock(GoogleOAuthService.class);
+		PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+		userService = new UserService(userRepository, mock(MongoTemplate.class),
+				new SimpleMeterRegistry(), dotenv);
+		jwtService = new JwtService(dotenv);
+
+		DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider(userService);
+		authenticationProvider.setPasswordEncoder(passwordEncoder);
+
+		MongoTemplate refreshTokenStore = mock(MongoTemplate.class);
+		when(refreshTokenStore.updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+		BlacklistedTokenRepository blacklistedTokenRepository = mock(BlacklistedTokenRepository.class);
+		TokenRevocationCache tokenRevocationCache = mock(TokenRevocationCache.class);
+		// Not loaded until a test calls refresh(); the users collection it reads is empty
+		MongoTemplate usersStore = mock(MongoTemplate.class);
+		when(usersStore.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> Stream.empty());
+		when(dotenv.get("LOGIN_ADMISSION_INITIAL_CHECK_MS", "250")).thenReturn("1");
+		registeredEmailFilter = new RegisteredEmailFilter(usersStore, dotenv);
+
+		authService = new AuthService(
+				userService,
+				jwtService,
+				passwordEncoder,
+				new ProviderManager(authenticationProvider),
+				blacklistedTokenRepository,
+				googleOAuthService,
+				tokenRevocationCache,
+				new RefreshTokenService(refreshTokenStore, jwtService, blacklistedTokenRepository,
+						tokenRevocationCache, new SimpleMeterRegistry(), dotenv),
+				new LoginAttemptLimiter(mock(MongoTemplate.class), new SimpleMeterRegistry(), dotenv),
+				registeredEmailFilter
+		);
+
+		storedUser = User.builder()
+				.id("user-1")
+				.email(EMAIL)
+				.password(passwordEncoder.encode(PASSWORD))
+				.firstName("Test")
+				.lastName("User")
+				.build();
+		when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(storedUser));
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+			User user = invocation.getArgument(0);
+			if (user.getId() == null) {
+				user.setId("user-2");
+			}
+			return user;
+		});
+	}
+
+	@Test
+	void registerInsertsOnceWithoutLookups() {
+		AuthResponse response = authService.register(RegisterRequest.builder()
+				.email("new@example.com")
+				.password(PASSWORD)
+				.firstName("New")
+				.lastName("User")
+				.build(), CLIENT_IP);
+
+		assertThat(response.getUser().getId()).isEqualTo("user-2");
+		verify(userRepository, times(1)).save(any(User.class));
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void registerReportsDuplicateEmailFromUniqueIndex() {
+		when(userRepository.save(any(User.class))).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+		assertThatThrownBy(() -> authService.register(RegisterRequest.builder()
+				.email(EMAIL)
+				.password(PASSWORD)
+				.firstName("Test")
+				.lastName("User")
+				.build(), CLIENT_IP))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessage("Email already exists");
+		verify(userRepository, times(1)).save(any(User.class));
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void loginLoadsUserOnce() {
+		AuthResponse response = authService.login(new LoginRequest(EMAIL, PASSWORD), CLIENT_IP);
+
+		assertThat(response.getUser().getId()).isEqualTo("user-1");
+		verify(userRepository, times(1)).findByEmail(EMAIL);
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void loginForUnregisteredEmailSkipsPasswordCheck() {
+		registeredEmailFilter.refresh();
+
+		assertThatThrownBy(() -> authService.login(new LoginRequest("missing@example.com", PASSWORD), CLIENT_IP))
+				.isInstanceOf(UnauthorizedException.class);
+		verify(userRepository, times(1)).findRegisteredEmail("missing@example.com");
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void loginForUserMissingFromFilterIsConfirmedBeforeRefusing() {
+		// Registered on another node since the filter was loaded
+		registeredEmailFilter.refresh();
+		when(userRepository.findRegisteredEmail(EMAIL)).thenReturn(Optional.of(() -> EMAIL));
+
+		AuthResponse response = authService.login(new LoginRequest(EMAIL, PASSWORD), CLIENT_IP);
+
+		assertThat(response.getUser().getId()).isEqualTo("user-1");
+		assertThat(registeredEmailFilter.mightBeRegistered(EMAIL)).isTrue();
+	}
+
+	@Test
+	void refreshTokenLoadsUserOnce() {
+		String refreshToken = authService.login(new LoginRequest(EMAIL, PASSWORD), CLIENT_IP).getRefreshToken();
+
+		authService.refreshToken(new RefreshTokenRequest(refreshToken));
+
+		// One lookup for the login above, one for the refresh
+		verify(userRepository, times(2)).findByEmail(EMAIL);
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void changePasswordBumpsTokenVersionInTheSameWrite() {
+		String accessToken = authService.login(new LoginRequest(EMAIL, PASSWORD), CLIENT_IP).getAccessToken();
+
+		authService.changePassword(EMAIL, ChangePasswordRequest.builder()
+				.currentPassword(PASSWORD)
+				.newPassword("new-secret-password")
+				.confirmPassword("new-secret-password")
+				.build(), CLIENT_IP);
+
+		ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+		verify(userRepository, times(1)).save(saved.capture());
+		assertThat(saved.getValue().getTokenVersion()).isEqualTo(1);
+		assertThat(jwtService.verifyToken(accessToken).orElseThrow().isCurrentVersion(saved.getValue().getTokenVersion()))
+				.isFalse();
+	}
+
+	@Test
+	void googleLoginOfUnchangedGoogleUserLoadsOnceAndDoesNotWrite() {
+		storedUser.setAuthProvider(AuthProvider.GOOGLE);
+		storedUser.setProviderId("google-sub");
+		when(googleOAuthService.authenticate("code", null))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email(EMAIL).build());
+
+		authService.loginWithGoogle(new GoogleAuthRequest("code", null));
+
+		verify(userRepository, times(1)).findByEmail(EMAIL);
+		verify(userRepository, never()).save(any(User.class));
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void googleIdTokenLoginSkipsCodeExchange() {
+		storedUser.setAuthProvider(AuthProvider.GOOGLE);
+		storedUser.setProviderId("google-sub");
+		when(googleOAuthService.verifyIdToken("id-token"))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email(EMAIL).build());
+
+		AuthResponse response = authService.loginWithGoogleIdToken(new GoogleIdTokenRequest("id-token"));
+
+		assertThat(response.getUser().getId()).isEqualTo("user-1");
+		verify(googleOAuthService, never()).authenticate(anyString(), any());
+		verify(userRepository, times(1)).findByEmail(EMAIL);
+		verify(userRepository, never()).save(any(User.class));
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void googleIdTokenWithUnverifiedEmailDoesNotTakeOverLocalAccount() {
+		when(googleOAuthService.verifyIdToken("id-token"))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email(EMAIL).emailVerified(false).build());
+
+		assertThatThrownBy(() -> authService.loginWithGoogleIdToken(new GoogleIdTokenRequest("id-token")))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessage("Google account email is not verified");
+		verify(userRepository, never()).save(any(User.class));
+	}
+
+	@Test
+	void googleIdTokenWithUnverifiedEmailDoesNotCreateAccount() {
+		when(googleOAuthService.verifyIdToken("id-token"))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email("new@example.com").build());
+
+		assertThatThrownBy(() -> authService.loginWithGoogleIdToken(new GoogleIdTokenRequest("id-token")))
+				.isInstanceOf(BadRequestException.class);
+		verify(userRepository, never()).save(any(User.class));
+	}
+
+	@Test
+	void googleIdTokenWithUnverifiedEmailDoesNotBindGoogleAccountWithoutProviderId() {
+		storedUser.setAuthProvider(AuthProvider.GOOGLE);
+		storedUser.setProviderId(null);
+		when(googleOAuthService.verifyIdToken("id-token"))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email(EMAIL).emailVerified(false).build());
+
+		assertThatThrownBy(() -> authService.loginWithGoogleIdToken(new GoogleIdTokenRequest("id-token")))
+				.isInstanceOf(BadRequestException.class)
+				.hasMessage("Google account email is not verified");
+		verify(userRepository, never()).save(any(User.class));
+	}
+
+	@Test
+	void googleIdTokenWithVerifiedEmailLinksLocalAccount() {
+		when(googleOAuthService.verifyIdToken("id-token"))
+				.thenReturn(GoogleUserInfo.builder().sub("google-sub").email(EMAIL).emailVerified(true).build());
+
+		authService.loginWithGoogleIdToken(new GoogleIdTokenRequest("id-token"));
+
+		assertThat(storedUser.getAuthProvider()).isEqualTo(AuthProvider.GOOGLE);
+		assertThat(storedUser.getProviderId()).isEqualTo("google-sub");
+		verify(userRepository, times(1)).save(storedUser);
+	}
+
+	@Test
+	void profileReadsProjectionOnly() {
+		UserProfileView view = new SpelAwareProxyProjectionFactory().createProjection(UserProfileView.class, storedUser);
+		when(userRepository.findProfileViewByEmail(EMAIL)).thenReturn(Optional.of(view));
+
+		UserProfileResponse profile = authService.getCurrentUserProfile(EMAIL);
+
+		assertThat(profile.getId()).isEqualTo("user-1");
+		assertThat(profile.isEnabled()).isTrue();
+		verify(userRepository, times(1)).findProfileViewByEmail(EMAIL);
+		verifyNoMoreInteractions(userRepository);
+	}
+
+	@Test
+	void cachedPrincipalReadsAuthProjectionOnce() {
+		UserAuthView view = new SpelAwareProxyProjectionFactory().createProjection(UserAuthView.class, storedUser);
+		when(userRepository.findAuthViewByEmail(EMAIL)).thenReturn(Optional.of(view));
+
+		UserPrincipal principal = userService.loadCachedPrincipal(EMAIL);
+		userService.loadCachedPrincipal(EMAIL);
+
+		assertThat(principal.getId()).isEqualTo("user-1");
+		assertThat(principal.getPassword()).isEmpty();
+		verify(userRepository, times(1)).findAuthViewByEmail(EMAIL);
+		verifyNoMoreInteractions(userRepository);
+	}
+}
@@ -0,0 +1,190 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.config.GoogleOAuthConfig;
+import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import com.sun.net.httpserver.HttpServer;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies Google ID tokens against keys served by a local stub of Google's JWKS endpoint.
+ */
+class GoogleIdTokenVerifierTest {
+
+	private static final String CLIENT_ID = "client-id.apps.googleusercontent.com";
+	private static final String EMAIL = "user@gmail.com";
+
+	private final AtomicInteger jwksRequests = new AtomicInteger();
+	private volatile String jwksBody;
+	private HttpServer stubGoogle;
+	private KeyPair signingKey;
+	private GoogleJwksProvider jwksProvider;
+	private GoogleIdTokenVerifier verifier;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		signingKey = newRsaKeyPair();
+		jwksBody = jwks("kid-1", signingKey);
+
+		stubGoogle = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		stubGoogle.createContext("/certs", exchange -> {
+			jwksRequests.incrementAndGet();
+			byte[] body = jwksBody.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("Cache-Control", "public, max-age=3600, must-revalidate");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		stubGoogle.start();
+
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("GOOGLE_CLIENT_ID", "")).thenReturn(CLIENT_ID);
+		when(dotenv.get("GOOGLE_JWKS_URI", "https://www.googleapis.com/oauth2/v3/certs"))
+				.thenReturn("http://127.0.0.1:" + stubGoogle.getAddress().getPort() + "/certs");
+		when(dotenv.get("GOOGLE_JWKS_MIN_REFRESH_MS", "60000")).thenReturn("0");
+
+		GoogleOAuthConfig config = new GoogleOAuthConfig(dotenv);
+		jwksProvider = new GoogleJwksProvider(config, WebClient.builder().build());
+		verifier = new GoogleIdTokenVerifier(config, jwksProvider);
+	}
+
+	@AfterEach
+	void tearDown() {
+		stubGoogle.stop(0);
+	}
+
+	@Test
+	void readsProfileFromVerifiedTokenAndFetchesKeysOnce() {
+		String idToken = idToken("kid-1", signingKey, "https://accounts.google.com", CLIENT_ID);
+
+		GoogleUserInfo userInfo = verifier.verify(idToken);
+		verifier.verify(idToken);
+
+		assertThat(userInfo.getSub()).isEqualTo("google-sub");
+		assertThat(userInfo.getEmail()).isEqualTo(EMAIL);
+		assertThat(userInfo.getEmailVerified()).isTrue();
+		assertThat(userInfo.getGivenName()).isEqualTo("Test");
+		assertThat(userInfo.getFamilyName()).isEqualTo("User");
+		assertThat(userInfo.getPicture()).isEqualTo("https://lh3.googleusercontent.com/a/picture");
+		assertThat(jwksRequests).hasValue(1);
+	}
+
+	@Test
+	void rejectsTokenIssuedForAnotherClient() {
+		String idToken = idToken("kid-1", signingKey, "https://accounts.google.com", "other-client");
+
+		assertThatThrownBy(() -> verifier.verify(idToken)).isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void rejectsTokenFromAnotherIssuer() {
+		String idToken = idToken("kid-1", signingKey, "https://evil.example.com", CLIENT_ID);
+
+		assertThatThrownBy(() -> verifier.verify(idToken)).isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void rejectsTokenSignedWithUnpublishedKey() throws Exception {
+		String idToken = idToken("kid-1", newRsaKeyPair(), "https://accounts.google.com", CLIENT_ID);
+
+		assertThatThrownBy(() -> verifier.verify(idToken)).isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void rejectsTokenSignedWithAnotherRsaAlgorithm() {
+		String idToken = idToken("kid-1", signingKey, "https://accounts.google.com", CLIENT_ID, Jwts.SIG.PS256);
+
+		assertThatThrownBy(() -> verifier.verify(idToken)).isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void refetchesKeysWhenGoogleRotatesToUnknownKeyId() throws Exception {
+		verifier.verify(idToken("kid-1", signingKey, "https://accounts.google.com", CLIENT_ID));
+		KeyPair rotatedKey = newRsaKeyPair();
+		jwksBody = jwks("kid-2", rotatedKey);
+
+		GoogleUserInfo userInfo = verifier.verify(idToken("kid-2", rotatedKey, "accounts.google.com", CLIENT_ID));
+
+		assertThat(userInfo.getEmail()).isEqualTo(EMAIL);
+		assertThat(jwksRequests).hasValue(2);
+	}
+
+	@Test
+	void schedulesRefreshFromCacheControlMaxAge() {
+		// 90% of max-age=3600
+		assertThat(jwksProvider.refresh()).isEqualTo(3_240_000L);
+	}
+
+	private static String idToken(String keyId, KeyPair keyPair, String issuer, String audience) {
+		return idToken(keyId, keyPair, issuer, audience, Jwts.SIG.RS256);
+	}
+
+	private static String idToken(String keyId, KeyPair keyPair, String issuer, String audience,
+			SignatureAlgorithm algorithm) {
+		Instant now = Instant.now();
+		return Jwts.builder()
+				.header().keyId(keyId).and()
+				.issuer(issuer)
+				.audience().add(audience).and()
+				.subject("google-sub")
+				.claim("email", EMAIL)
+				.claim("email_verified", true)
+				.claim("given_name", "Test")
+				.claim("family_name", "User")
+				.claim("picture", "https://lh3.googleusercontent.com/a/picture")
+				.issuedAt(Date.from(now))
+				.expiration(Date.from(now.plusSeconds(3600)))
+				.signWith(keyPair.getPrivate(), algorithm)
+				.compact();
+	}
+
+	private static String jwks(String keyId, KeyPair keyPair) {
+		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+		return "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\",\"kid\":\"" + keyId + "\","
+				+ "\"n\":\"" + base64Url(publicKey.getModulus()) + "\","
+				+ "\"e\":\"" + base64Url(publicKey.getPublicExponent()) + "\"}]}";
+	}
+
+	private static String base64Url(BigInteger value) {
+		byte[] bytes = value.toByteArray();
+		if (bytes.length > 1 && bytes[0] == 0) {
+			// Drop the sign byte BigInteger adds to values with the high bit set
+			bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	private static KeyPair newRsaKeyPair() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		return generator.generateKeyPair();
+	}
+}
@@ -0,0 +1,114 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.config.GoogleOAuthConfig;
+import com.hpt.authentication_svc.dto.response.GoogleUserInfo;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which Google calls are retried, and how the circuit breaker stops them once Google keeps failing.
+ */
+class GoogleOAuthServiceRetryTest {
+
+	private static final String USER_INFO = "{\"sub\":\"google-sub\",\"email\":\"user@gmail.com\"}";
+
+	private final Deque<HttpStatus> responses = new ArrayDeque<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private GoogleOAuthService googleOAuthService;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("GOOGLE_CIRCUIT_FAILURE_THRESHOLD", "5")).thenReturn("3");
+
+		// Answers each request with the next queued status, 200 with a profile once the queue is empty
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					requests.incrementAndGet();
+					HttpStatus status = responses.isEmpty() ? HttpStatus.OK : responses.poll();
+					return Mono.just(ClientResponse.create(status)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+							.body(status == HttpStatus.OK ? USER_INFO : "{}")
+							.build());
+				})
+				.build();
+		googleOAuthService = new GoogleOAuthService(new GoogleOAuthConfig(dotenv), webClient,
+				new SimpleMeterRegistry(), mock(GoogleIdTokenVerifier.class));
+	}
+
+	@Test
+	void userInfoIsRetriedAfterServerError() {
+		responses.add(HttpStatus.SERVICE_UNAVAILABLE);
+
+		GoogleUserInfo userInfo = googleOAuthService.getUserInfo("access-token");
+
+		assertThat(userInfo.getEmail()).isEqualTo("user@gmail.com");
+		assertThat(requests).hasValue(2);
+	}
+
+	@Test
+	void userInfoRetriesAreBounded() {
+		for (int i = 0; i < 3; i++) {
+			responses.add(HttpStatus.BAD_GATEWAY);
+		}
+
+		assertThatThrownBy(() -> googleOAuthService.getUserInfo("access-token"))
+				.isInstanceOf(BadRequestException.class);
+		// One attempt plus GOOGLE_HTTP_MAX_RETRIES
+		assertThat(requests).hasValue(3);
+	}
+
+	@Test
+	void userInfoClientErrorIsNotRetried() {
+		responses.add(HttpStatus.UNAUTHORIZED);
+
+		assertThatThrownBy(() -> googleOAuthService.getUserInfo("access-token"))
+				.isInstanceOf(BadRequestException.class);
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void tokenExchangeIsNotRetried() {
+		responses.add(HttpStatus.SERVICE_UNAVAILABLE);
+
+		assertThatThrownBy(() -> googleOAuthService.exchangeCodeForToken("code", null))
+				.isInstanceOf(BadRequestException.class);
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void openCircuitStopsRetriesAndFailsFast() {
+		for (int i = 0; i < 3; i++) {
+			responses.add(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		assertThatThrownBy(() -> googleOAuthService.getUserInfo("access-token"))
+				.isInstanceOf(BadRequestException.class);
+		assertThat(requests).hasValue(3);
+
+		// Google has recovered, but the circuit stays open until its open period has passed
+		assertThatThrownBy(() -> googleOAuthService.getUserInfo("access-token"))
+				.isInstanceOf(ServiceUnavailableException.class);
+		assertThat(requests).hasValue(3);
+	}
+}
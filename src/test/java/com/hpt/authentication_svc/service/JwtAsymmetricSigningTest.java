@@ -0,0 +1,127 @@
+package com.hpt.authentication_svc.service;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ES256 and EdDSA signing configured through JWT_SIGNING_ALGORITHM, and verification by kid.
+ */
+class JwtAsymmetricSigningTest {
+
+	private final UserDetails user = User.withUsername("user@example.com").password("").build();
+	private String hmacSecret;
+
+	@BeforeEach
+	void setUp() {
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		hmacSecret = Base64.getEncoder().encodeToString(secret);
+	}
+
+	@Test
+	void es256TokensCarryPublishedKeyId() {
+		KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+		JwtService jwtService = new JwtService(dotenv("ES256", keyPair, null));
+
+		String token = jwtService.generateAccessToken(user);
+
+		assertThat(header(token)).contains("\"alg\":\"ES256\"");
+		assertThat(jwtService.verifyToken(token)).isPresent();
+		// Without JWT_SIGNING_KEY_ID the kid is the RFC 7638 thumbprint of the public key
+		String thumbprint = Jwks.builder().key(keyPair.getPublic()).idFromThumbprint().build().getId();
+		assertThat(header(token)).contains("\"kid\":\"" + thumbprint + "\"");
+		assertThat(jwtService.getPublicJwks()).singleElement()
+				.satisfies(jwk -> assertThat(jwk).containsEntry("kid", thumbprint).doesNotContainKey("d"));
+	}
+
+	@Test
+	void eddsaTokensVerify() {
+		KeyPair keyPair = Jwks.CRV.Ed25519.keyPair().build();
+		JwtService jwtService = new JwtService(dotenv("EdDSA", keyPair, null));
+
+		String token = jwtService.generateAccessToken(user);
+
+		assertThat(header(token)).contains("\"alg\":\"EdDSA\"");
+		assertThat(jwtService.verifyToken(token)).isPresent();
+	}
+
+	@Test
+	void hs512TokensIssuedBeforeSwitchKeepVerifying() {
+		JwtService before = new JwtService(dotenv("HS512", null, hmacSecret));
+		String legacyToken = before.generateAccessToken(user);
+
+		JwtService after = new JwtService(dotenv("ES256", Jwts.SIG.ES256.keyPair().build(), hmacSecret));
+
+		assertThat(header(legacyToken)).doesNotContain("kid");
+		assertThat(after.verifyToken(legacyToken)).isPresent();
+		// The secret only verifies; it is never published
+		assertThat(after.getPublicJwks()).hasSize(1);
+	}
+
+	@Test
+	void rejectsUnknownKeyId() {
+		JwtService jwtService = new JwtService(dotenv("ES256", Jwts.SIG.ES256.keyPair().build(), null));
+		KeyPair otherKey = Jwts.SIG.ES256.keyPair().build();
+		String token = Jwts.builder()
+				.header().keyId("unknown").and()
+				.subject(user.getUsername())
+				.expiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(otherKey.getPrivate(), Jwts.SIG.ES256)
+				.compact();
+
+		assertThat(jwtService.verifyToken(token)).isEmpty();
+	}
+
+	@Test
+	void rejectsHmacTokenForgedWithPublishedPublicKey() {
+		KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+		JwtService jwtService = new JwtService(dotenv("ES256", keyPair, null));
+		String keyId = Jwks.builder().key(keyPair.getPublic()).idFromThumbprint().build().getId();
+
+		// Classic algorithm confusion: the token names the EC key but is MACed with its public bytes
+		String forged = Jwts.builder()
+				.header().keyId(keyId).and()
+				.subject(user.getUsername())
+				.expiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(Keys.hmacShaKeyFor(keyPair.getPublic().getEncoded()), Jwts.SIG.HS256)
+				.compact();
+
+		assertThat(jwtService.verifyToken(forged)).isEmpty();
+	}
+
+	private Dotenv dotenv(String algorithm, KeyPair keyPair, String secret) {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("JWT_SIGNING_ALGORITHM", "HS512")).thenReturn(algorithm);
+		when(dotenv.get("JWT_SECRET")).thenReturn(secret);
+		if (keyPair != null) {
+			when(dotenv.get("JWT_SIGNING_PRIVATE_KEY"))
+					.thenReturn(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+			when(dotenv.get("JWT_SIGNING_PUBLIC_KEY"))
+					.thenReturn(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+		}
+		return dotenv;
+	}
+
+	private static String header(String token) {
+		return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+				StandardCharsets.UTF_8);
+	}
+}
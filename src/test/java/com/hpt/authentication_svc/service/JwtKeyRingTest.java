@@ -0,0 +1,116 @@
+package com.hpt.authentication_svc.service;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rotates keys through a hot-reloaded key ring file and checks which tokens still verify.
+ */
+class JwtKeyRingTest {
+
+	@TempDir
+	Path directory;
+
+	private Path keyRingFile;
+	private String hmacSecret;
+	private KeyPair ecKeyPair;
+	private JwtService jwtService;
+	private final UserDetails user = User.withUsername("user@example.com").password("").build();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		hmacSecret = Base64.getEncoder().encodeToString(secret);
+		ecKeyPair = Jwts.SIG.ES256.keyPair().build();
+
+		keyRingFile = directory.resolve("jwt-keyring.properties");
+		writeKeyRing("active=k1\n" + hmacEntry("k1"));
+
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("JWT_KEYRING_FILE", null)).thenReturn(keyRingFile.toString());
+		jwtService = new JwtService(dotenv);
+	}
+
+	@Test
+	void rotatesActiveKeyWhileOldTokensKeepVerifying() throws Exception {
+		String oldToken = jwtService.generateAccessToken(user);
+
+		writeKeyRing("active=k2\n" + hmacEntry("k1") + ecEntry("k2"));
+		assertThat(jwtService.reloadKeyRingIfChanged()).isTrue();
+		String newToken = jwtService.generateAccessToken(user);
+
+		assertThat(keyId(oldToken)).isEqualTo("k1");
+		assertThat(keyId(newToken)).isEqualTo("k2");
+		assertThat(jwtService.verifyToken(oldToken)).isPresent();
+		assertThat(jwtService.verifyToken(newToken)).isPresent();
+		// Only the public key is published, never the HMAC secret
+		assertThat(jwtService.getPublicJwks()).singleElement()
+				.satisfies(jwk -> assertThat(jwk).containsEntry("kid", "k2").doesNotContainKey("d"));
+	}
+
+	@Test
+	void rejectsTokensOfRemovedKey() throws Exception {
+		String oldToken = jwtService.generateAccessToken(user);
+
+		writeKeyRing("active=k2\n" + ecEntry("k2"));
+		jwtService.reloadKeyRingIfChanged();
+
+		assertThat(jwtService.verifyToken(oldToken)).isEmpty();
+	}
+
+	@Test
+	void keepsCurrentKeysWhenReloadedFileIsInvalid() throws Exception {
+		String token = jwtService.generateAccessToken(user);
+
+		writeKeyRing("active=missing\n" + hmacEntry("k1"));
+
+		assertThat(jwtService.reloadKeyRingIfChanged()).isFalse();
+		assertThat(jwtService.verifyToken(token)).isPresent();
+		assertThat(keyId(jwtService.generateAccessToken(user))).isEqualTo("k1");
+	}
+
+	@Test
+	void unchangedFileIsNotReloaded() {
+		assertThat(jwtService.reloadKeyRingIfChanged()).isFalse();
+	}
+
+	private void writeKeyRing(String content) throws Exception {
+		Files.writeString(keyRingFile, content);
+	}
+
+	private String hmacEntry(String keyId) {
+		return "keys." + keyId + ".algorithm=HS512\n"
+				+ "keys." + keyId + ".secret=" + hmacSecret + "\n";
+	}
+
+	private String ecEntry(String keyId) {
+		return "keys." + keyId + ".algorithm=ES256\n"
+				+ "keys." + keyId + ".private=" + Base64.getEncoder().encodeToString(ecKeyPair.getPrivate().getEncoded()) + "\n"
+				+ "keys." + keyId + ".public=" + Base64.getEncoder().encodeToString(ecKeyPair.getPublic().getEncoded()) + "\n";
+	}
+
+	private static String keyId(String token) {
+		String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+				StandardCharsets.UTF_8);
+		return header.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1");
+	}
+}
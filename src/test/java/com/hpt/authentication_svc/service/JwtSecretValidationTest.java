@@ -0,0 +1,78 @@
+package com.hpt.authentication_svc.service;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A missing or weak JWT_SECRET must stop JwtService from being created, not surface at the first login.
+ */
+class JwtSecretValidationTest {
+
+	@Test
+	void rejectsMissingSecret() {
+		assertThatThrownBy(() -> new JwtService(dotenv(null)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("JWT_SECRET is not set");
+		assertThatThrownBy(() -> new JwtService(dotenv("   ")))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("JWT_SECRET is not set");
+	}
+
+	@Test
+	void rejectsSecretThatIsNotBase64() {
+		assertThatThrownBy(() -> new JwtService(dotenv("not%base64%secret")))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("JWT_SECRET must be Base64-encoded");
+	}
+
+	@Test
+	void rejectsSecretShorterThanHs512Digest() {
+		assertThatThrownBy(() -> new JwtService(dotenv(encode(randomBytes(32)))))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("at least 64 bytes");
+	}
+
+	@Test
+	void rejectsLowEntropySecret() {
+		byte[] repeated = new byte[64];
+		Arrays.fill(repeated, (byte) 'a');
+
+		assertThatThrownBy(() -> new JwtService(dotenv(encode(repeated))))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("too little entropy");
+	}
+
+	@Test
+	void acceptsRandomSecret() {
+		JwtService jwtService = new JwtService(dotenv(encode(randomBytes(64))));
+
+		assertThat(jwtService.getPublicJwks()).isEmpty();
+	}
+
+	private static Dotenv dotenv(String secret) {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("JWT_SECRET")).thenReturn(secret);
+		return dotenv;
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		new SecureRandom().nextBytes(bytes);
+		return bytes;
+	}
+
+	private static String encode(byte[] bytes) {
+		return Base64.getEncoder().encodeToString(bytes);
+	}
+}
@@ -0,0 +1,101 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.exception.TooManyRequestsException;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sliding-window limits and exponential lockout of the in-memory store, driven by an explicit clock.
+ */
+class LoginAttemptLimiterTest {
+
+	private static final String EMAIL = "user@example.com";
+	private static final String IP = "203.0.113.7";
+	private static final long WINDOW = 900_000;
+	private static final long LOCKOUT = 30_000;
+
+	private MongoTemplate mongoTemplate;
+	private LoginAttemptLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		mongoTemplate = mock(MongoTemplate.class);
+		limiter = new LoginAttemptLimiter(mongoTemplate, new SimpleMeterRegistry(), dotenv);
+	}
+
+	@Test
+	void locksAccountAfterLimitAndDoublesLockout() {
+		long now = WINDOW * 10;
+		for (int i = 0; i < 5; i++) {
+			limiter.checkAllowed(EMAIL, IP, now);
+			limiter.recordFailure(EMAIL, IP, now);
+		}
+
+		long blockedAt = now;
+		assertThatThrownBy(() -> limiter.checkAllowed("USER@example.com", "198.51.100.1", blockedAt))
+				.isInstanceOf(TooManyRequestsException.class);
+
+		long afterFirstLockout = now + LOCKOUT;
+		assertThatCode(() -> limiter.checkAllowed(EMAIL, IP, afterFirstLockout)).doesNotThrowAnyException();
+		limiter.recordFailure(EMAIL, IP, afterFirstLockout);
+
+		// The second lockout lasts twice as long
+		assertThatThrownBy(() -> limiter.checkAllowed(EMAIL, null, afterFirstLockout + LOCKOUT + 1))
+				.isInstanceOf(TooManyRequestsException.class);
+		assertThatCode(() -> limiter.checkAllowed(EMAIL, null, afterFirstLockout + 2 * LOCKOUT))
+				.doesNotThrowAnyException();
+		verifyNoInteractions(mongoTemplate);
+	}
+
+	@Test
+	void successClearsAccountButNotIp() {
+		long now = WINDOW * 10;
+		for (int i = 0; i < 20; i++) {
+			limiter.recordFailure("user" + i + "@example.com", IP, now);
+		}
+		limiter.recordSuccess(EMAIL, now);
+
+		assertThatThrownBy(() -> limiter.checkAllowed(EMAIL, IP, now))
+				.isInstanceOf(TooManyRequestsException.class);
+		assertThatCode(() -> limiter.checkAllowed(EMAIL, "198.51.100.1", now)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void previousWindowFailuresFadeOut() {
+		long windowStart = WINDOW * 10;
+		for (int i = 0; i < 4; i++) {
+			limiter.recordFailure(EMAIL, null, windowStart);
+		}
+
+		// Late in the next window only a small share of the earlier failures still counts
+		long lateInNextWindow = windowStart + WINDOW + WINDOW * 9 / 10;
+		limiter.recordFailure(EMAIL, null, lateInNextWindow);
+		assertThatCode(() -> limiter.checkAllowed(EMAIL, null, lateInNextWindow)).doesNotThrowAnyException();
+	}
+
+	@Test
+	void flagsIpWithRecentFailures() {
+		long now = WINDOW * 10;
+		assertThat(limiter.isSuspicious(IP, now)).isFalse();
+
+		for (int i = 0; i < 3; i++) {
+			limiter.recordFailure("user" + i + "@example.com", IP, now);
+		}
+
+		assertThat(limiter.isSuspicious(IP, now)).isTrue();
+		assertThat(limiter.isSuspicious("198.51.100.1", now)).isFalse();
+	}
+}
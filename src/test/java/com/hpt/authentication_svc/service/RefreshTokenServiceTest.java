@@ -0,0 +1,242 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.exception.UnauthorizedException;
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.model.RefreshTokenFamily;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import com.hpt.authentication_svc.util.HashUtils;
+import com.mongodb.client.result.UpdateResult;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * One-time use and reuse detection of JWT and opaque refresh tokens against a mocked session store.
+ */
+class RefreshTokenServiceTest {
+
+	private Dotenv dotenv;
+	private MongoTemplate mongoTemplate;
+	private BlacklistedTokenRepository blacklistedTokenRepository;
+	private JwtService jwtService;
+	private RefreshTokenService refreshTokenService;
+	private RefreshTokenService opaqueRefreshTokenService;
+	private byte[] secret;
+	private final UserPrincipal principal = UserPrincipal.builder()
+			.id("user-1")
+			.email("user@example.com")
+			.password("")
+			.enabled(true)
+			.build();
+
+	@BeforeEach
+	void setUp() {
+		dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		when(dotenv.get("JWT_SECRET")).thenReturn(Base64.getEncoder().encodeToString(secret));
+
+		mongoTemplate = mock(MongoTemplate.class);
+		blacklistedTokenRepository = mock(BlacklistedTokenRepository.class);
+		jwtService = new JwtService(dotenv);
+		refreshTokenService = newRefreshTokenService(dotenv);
+		when(dotenv.get("REFRESH_TOKEN_MODE", RefreshTokenService.MODE_JWT)).thenReturn(RefreshTokenService.MODE_OPAQUE);
+		opaqueRefreshTokenService = newRefreshTokenService(dotenv);
+	}
+
+	@Test
+	void rotatesWithSingleConditionalWrite() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+		VerifiedToken issued = parse(refreshTokenService.issue(principal));
+
+		VerifiedToken rotated = parse(refreshTokenService.rotate(issued, principal));
+
+		assertThat(rotated.getFamilyId()).isEqualTo(issued.getFamilyId());
+		assertThat(rotated.getTokenId()).isNotEqualTo(issued.getTokenId());
+		verify(mongoTemplate, times(1)).insert(any(RefreshTokenFamily.class));
+		verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class));
+	}
+
+	@Test
+	void reuseOfRotatedTokenRevokesFamily() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+		VerifiedToken issued = parse(refreshTokenService.issue(principal));
+
+		assertThatThrownBy(() -> refreshTokenService.rotate(issued, principal))
+				.isInstanceOf(UnauthorizedException.class);
+		// The failed conditional rotation, then the unconditional revocation of the family
+		verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class));
+	}
+
+	@Test
+	void accessTokenIsNotAcceptedAsRefreshToken() {
+		assertThat(refreshTokenService.verify(jwtService.generateAccessToken(principal))).isEmpty();
+	}
+
+	@Test
+	void refreshTokenIsNotAcceptedAsAccessToken() {
+		VerifiedToken issued = parse(refreshTokenService.issue(principal));
+
+		assertThat(issued.isRefreshToken()).isTrue();
+		assertThat(issued.isAccessToken()).isFalse();
+	}
+
+	@Test
+	void legacyTokenIsRedeemedOnlyOnce() {
+		RefreshTokenService service = legacyRefreshTokenService(Instant.now().plusSeconds(60));
+		String legacyToken = legacyRefreshToken(86_400_000);
+		when(blacklistedTokenRepository.insert(any(BlacklistedToken.class)))
+				.thenReturn(null)
+				.thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+		VerifiedToken legacy = service.verify(legacyToken).orElseThrow();
+		assertThat(parse(service.rotate(legacy, principal)).getFamilyId()).isNotNull();
+		assertThatThrownBy(() -> service.rotate(legacy, principal))
+				.isInstanceOf(UnauthorizedException.class);
+	}
+
+	@Test
+	void legacyTokenIsRejectedWithoutCutoff() {
+		assertThat(refreshTokenService.verify(legacyRefreshToken(86_400_000))).isEmpty();
+	}
+
+	@Test
+	void legacyTokenIssuedAfterCutoffIsRejected() {
+		RefreshTokenService service = legacyRefreshTokenService(Instant.now().minusSeconds(60));
+
+		assertThat(service.verify(legacyRefreshToken(86_400_000))).isEmpty();
+	}
+
+	@Test
+	void accessTokenFromBeforeTokenUseIsNotAcceptedAsLegacyRefreshToken() {
+		RefreshTokenService service = legacyRefreshTokenService(Instant.now().plusSeconds(60));
+
+		// Same shape as a legacy refresh token, but with an access token's lifetime
+		assertThat(service.verify(legacyRefreshToken(3_600_000))).isEmpty();
+	}
+
+	@Test
+	void opaqueTokenIsRotatedAndItsPredecessorRevokesSession() {
+		ArgumentCaptor<RefreshTokenFamily> inserted = ArgumentCaptor.forClass(RefreshTokenFamily.class);
+		String token = opaqueRefreshTokenService.issue(principal);
+		verify(mongoTemplate).insert(inserted.capture());
+		RefreshTokenFamily session = inserted.getValue();
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		assertThat(token).hasSizeLessThan(100).startsWith(session.getId() + ".");
+		assertThat(session.getTokenHash()).isNotEqualTo(token);
+
+		// Served from the hot cache, so the refresh costs only the rotation write
+		VerifiedToken verified = opaqueRefreshTokenService.verify(token).orElseThrow();
+		String nextToken = opaqueRefreshTokenService.rotate(verified, principal);
+
+		assertThat(verified.getSubject()).isEqualTo("user@example.com");
+		assertThat(opaqueRefreshTokenService.verify(nextToken)).isPresent();
+		verify(mongoTemplate, never()).findById(anyString(), eq(RefreshTokenFamily.class));
+
+		// Replaying the used token is reuse: the session is revoked
+		assertThat(opaqueRefreshTokenService.verify(token)).isEmpty();
+		verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class));
+	}
+
+	@Test
+	void opaqueTokenSeveralRotationsOldRevokesSession() {
+		String first = opaqueRefreshTokenService.issue(principal);
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		String token = first;
+		for (int i = 0; i < 3; i++) {
+			token = opaqueRefreshTokenService.rotate(opaqueRefreshTokenService.verify(token).orElseThrow(), principal);
+		}
+
+		assertThat(opaqueRefreshTokenService.verify(first)).isEmpty();
+		// Three rotations and the revocation
+		verify(mongoTemplate, times(4)).updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class));
+	}
+
+	@Test
+	void spentOpaqueTokenFromStoredSessionRevokesSession() {
+		String token = opaqueRefreshTokenService.issue(principal);
+		String sessionId = token.substring(0, token.indexOf('.'));
+		RefreshTokenFamily stored = RefreshTokenFamily.builder()
+				.id(sessionId)
+				.userEmail("user@example.com")
+				.tokenHash("current")
+				.spentTokenHashes(List.of(HashUtils.sha256Hex(token)))
+				.expiresAt(Instant.now().plusSeconds(60))
+				.build();
+		when(mongoTemplate.findById(sessionId, RefreshTokenFamily.class)).thenReturn(stored);
+
+		// A node without a cached copy reads the session from the store
+		RefreshTokenService otherNode = newRefreshTokenService(dotenv);
+		assertThat(otherNode.verify(token)).isEmpty();
+		verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(RefreshTokenFamily.class));
+	}
+
+	@Test
+	void unknownOpaqueSessionIsRejected() {
+		assertThat(opaqueRefreshTokenService.verify("00000000-0000-0000-0000-000000000000.secret")).isEmpty();
+	}
+
+	private RefreshTokenService legacyRefreshTokenService(Instant legacyIssuedBefore) {
+		when(dotenv.get("REFRESH_TOKEN_MODE", RefreshTokenService.MODE_JWT)).thenReturn(RefreshTokenService.MODE_JWT);
+		when(dotenv.get("REFRESH_TOKEN_LEGACY_ISSUED_BEFORE", "")).thenReturn(legacyIssuedBefore.toString());
+		return newRefreshTokenService(dotenv);
+	}
+
+	private RefreshTokenService newRefreshTokenService(Dotenv dotenv) {
+		return new RefreshTokenService(mongoTemplate, jwtService, blacklistedTokenRepository,
+				mock(TokenRevocationCache.class), new SimpleMeterRegistry(), dotenv);
+	}
+
+	/**
+	 * A token as issued before token families and token_use: no fid, otherwise shaped like an access token.
+	 */
+	private String legacyRefreshToken(long lifetimeMillis) {
+		long now = System.currentTimeMillis();
+		return Jwts.builder()
+				.id(UUID.randomUUID().toString())
+				.subject("user@example.com")
+				.issuedAt(new Date(now))
+				.expiration(new Date(now + lifetimeMillis))
+				.signWith(Keys.hmacShaKeyFor(secret))
+				.compact();
+	}
+
+	private VerifiedToken parse(String token) {
+		return jwtService.verifyToken(token).orElseThrow();
+	}
+}
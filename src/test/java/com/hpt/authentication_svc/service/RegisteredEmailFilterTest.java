@@ -0,0 +1,75 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.User;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unknown emails are only refused for screened sources, and refusals take as long as a password check.
+ */
+class RegisteredEmailFilterTest {
+
+	private Dotenv dotenv;
+	private MongoTemplate mongoTemplate;
+	private RegisteredEmailFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(dotenv.get("LOGIN_ADMISSION_INITIAL_CHECK_MS", "250")).thenReturn("20");
+		mongoTemplate = mock(MongoTemplate.class);
+		when(mongoTemplate.stream(any(Query.class), eq(User.class)))
+				.thenAnswer(invocation -> Stream.of(User.builder().email("User@Example.com").build()));
+		filter = new RegisteredEmailFilter(mongoTemplate, dotenv);
+	}
+
+	@Test
+	void admitsEverythingUntilLoaded() {
+		assertThat(filter.shouldReject("missing@example.com", true)).isFalse();
+	}
+
+	@Test
+	void screensEverySourceByDefault() {
+		filter.refresh();
+
+		assertThat(filter.shouldReject("user@example.com", false)).isFalse();
+		assertThat(filter.shouldReject("missing@example.com", false)).isTrue();
+	}
+
+	@Test
+	void rejectsOnlyUnknownEmailsFromSuspiciousSourcesWhenNotScreeningAll() {
+		when(dotenv.get("LOGIN_ADMISSION_SCREEN_ALL", "true")).thenReturn("false");
+		RegisteredEmailFilter filter = new RegisteredEmailFilter(mongoTemplate, dotenv);
+		filter.refresh();
+
+		assertThat(filter.shouldReject("user@example.com", true)).isFalse();
+		assertThat(filter.shouldReject("missing@example.com", false)).isFalse();
+		assertThat(filter.shouldReject("missing@example.com", true)).isTrue();
+
+		filter.add("missing@example.com");
+		assertThat(filter.shouldReject("missing@example.com", true)).isFalse();
+	}
+
+	@Test
+	void refusalWaitsForAveragePasswordCheck() {
+		long startedNanos = System.nanoTime();
+
+		filter.awaitPasswordCheckDuration(startedNanos);
+
+		assertThat(System.nanoTime() - startedNanos).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+	}
+}
@@ -0,0 +1,89 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The polling fallback used where change streams are unavailable.
+ */
+class RevocationPropagationServiceTest {
+
+	private BlacklistedTokenRepository repository;
+	private TokenRevocationCache cache;
+	private SimpleMeterRegistry meterRegistry;
+	private RevocationPropagationService service;
+
+	@BeforeEach
+	void setUp() {
+		Dotenv dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		repository = mock(BlacklistedTokenRepository.class);
+		when(repository.findByExpiresAtAfter(any(Instant.class))).thenReturn(List.of());
+		cache = new TokenRevocationCache(repository, dotenv);
+		cache.rebuild();
+		meterRegistry = new SimpleMeterRegistry();
+		service = new RevocationPropagationService(mock(MongoTemplate.class), repository, cache, meterRegistry, dotenv);
+	}
+
+	@Test
+	void pollPicksUpRevocationsFromOtherNodes() {
+		when(repository.findByBlacklistedAtAfter(any(Instant.class)))
+				.thenReturn(List.of(revoked("jti-1", Instant.now().minusSeconds(2))));
+
+		service.poll();
+
+		assertThat(cache.isRevoked("jti-1")).isTrue();
+		assertThat(cache.isRevoked("jti-2")).isFalse();
+		verify(repository, never()).existsByTokenId(anyString());
+		assertThat(meterRegistry.get("auth.revocation.propagation.lag").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void pollAdvancesWatermarkPastNewestRevocation() {
+		Instant newest = Instant.now().plusSeconds(120);
+		when(repository.findByBlacklistedAtAfter(any(Instant.class)))
+				.thenReturn(List.of(revoked("jti-1", newest)))
+				.thenReturn(List.of());
+
+		service.poll();
+		service.poll();
+
+		// The second poll re-reads the overlap window before the newest revocation seen so far
+		verify(repository).findByBlacklistedAtAfter(newest.minusSeconds(30));
+	}
+
+	@Test
+	void pollAcceptsDocumentsWrittenBeforeBlacklistedAtExisted() {
+		when(repository.findByBlacklistedAtAfter(any(Instant.class)))
+				.thenReturn(List.of(revoked("jti-legacy", null)));
+
+		service.poll();
+
+		assertThat(cache.isRevoked("jti-legacy")).isTrue();
+		assertThat(meterRegistry.get("auth.revocation.propagation.lag").timer().count()).isZero();
+	}
+
+	private static BlacklistedToken revoked(String tokenId, Instant blacklistedAt) {
+		return BlacklistedToken.builder()
+				.tokenId(tokenId)
+				.expiresAt(Instant.now().plusSeconds(3600))
+				.blacklistedAt(blacklistedAt)
+				.build();
+	}
+}
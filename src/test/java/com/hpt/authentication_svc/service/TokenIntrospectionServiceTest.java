@@ -0,0 +1,192 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.dto.response.IntrospectionResponse;
+import com.hpt.authentication_svc.dto.response.VerdictResponse;
+import com.hpt.authentication_svc.exception.BadRequestException;
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import com.hpt.authentication_svc.exception.UnauthorizedException;
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.model.UserPrincipal;
+import com.hpt.authentication_svc.model.VerifiedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Batch introspection must settle revocation for all tokens with a single lookup,
+ * and verdicts must stay short-lived and unusable as credentials.
+ */
+class TokenIntrospectionServiceTest {
+
+	private Dotenv dotenv;
+	private JwtService jwtService;
+	private BlacklistedTokenRepository blacklistedTokenRepository;
+	private UserService userService;
+	private final UserPrincipal principal = UserPrincipal.builder()
+			.id("user-1")
+			.email("user@example.com")
+			.password("")
+			.enabled(true)
+			.build();
+
+	@BeforeEach
+	void setUp() {
+		dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		byte[] secret = new byte[64];
+		new SecureRandom().nextBytes(secret);
+		when(dotenv.get("JWT_SECRET")).thenReturn(Base64.getEncoder().encodeToString(secret));
+
+		jwtService = new JwtService(dotenv);
+		blacklistedTokenRepository = mock(BlacklistedTokenRepository.class);
+		userService = mock(UserService.class);
+		when(userService.resolvePrincipal(any(VerifiedToken.class), anyBoolean())).thenReturn(principal);
+	}
+
+	private KeyPair useAsymmetricSigning() {
+		KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+		when(dotenv.get("JWT_SIGNING_ALGORITHM", "HS512")).thenReturn("ES256");
+		when(dotenv.get("JWT_SIGNING_PRIVATE_KEY"))
+				.thenReturn(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+		when(dotenv.get("JWT_SIGNING_PUBLIC_KEY"))
+				.thenReturn(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+		jwtService = new JwtService(dotenv);
+		return keyPair;
+	}
+
+	private TokenIntrospectionService newService() {
+		// The revocation cache is never started, so every lookup has to reach the repository
+		return new TokenIntrospectionService(jwtService, userService,
+				new TokenRevocationCache(blacklistedTokenRepository, dotenv), dotenv);
+	}
+
+	@Test
+	void batchChecksRevocationWithOneQuery() {
+		String valid = jwtService.generateAccessToken(principal);
+		String revoked = jwtService.generateAccessToken(principal);
+		String revokedId = jwtService.verifyToken(revoked).orElseThrow().getTokenId();
+		when(blacklistedTokenRepository.findByTokenIdIn(anyCollection()))
+				.thenReturn(List.of(BlacklistedToken.builder().tokenId(revokedId).build()));
+
+		List<IntrospectionResponse> results = newService().introspectBatch(List.of(valid, revoked, "not-a-jwt"));
+
+		assertThat(results).extracting(IntrospectionResponse::isActive).containsExactly(true, false, false);
+		assertThat(results.get(0).getSub()).isEqualTo("user@example.com");
+		assertThat(results.get(0).getUid()).isEqualTo("user-1");
+		verify(blacklistedTokenRepository, times(1)).findByTokenIdIn(anyCollection());
+		verify(blacklistedTokenRepository, never()).existsByTokenId(anyString());
+	}
+
+	@Test
+	void rejectsOversizedBatch() {
+		when(dotenv.get("INTROSPECTION_MAX_BATCH_SIZE", "100")).thenReturn("2");
+
+		assertThatThrownBy(() -> newService().introspectBatch(Collections.nCopies(3, "token")))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	void requiresClientKeyWhenConfigured() {
+		when(dotenv.get("INTROSPECTION_CLIENT_KEY", "")).thenReturn("gateway-key");
+		TokenIntrospectionService service = newService();
+
+		service.authorizeClient("gateway-key");
+		assertThatThrownBy(() -> service.authorizeClient("wrong"))
+				.isInstanceOf(UnauthorizedException.class);
+		assertThatThrownBy(() -> service.authorizeClient(null))
+				.isInstanceOf(UnauthorizedException.class);
+	}
+
+	@Test
+	void refusesEveryClientWithoutConfiguredKey() {
+		TokenIntrospectionService service = newService();
+
+		assertThatThrownBy(() -> service.authorizeClient(null))
+				.isInstanceOf(UnauthorizedException.class);
+		assertThatThrownBy(() -> service.authorizeClient("anything"))
+				.isInstanceOf(UnauthorizedException.class);
+	}
+
+	@Test
+	void allowsUnauthenticatedClientsOnlyWhenOptedIn() {
+		when(dotenv.get("INTROSPECTION_ALLOW_UNAUTHENTICATED", "false")).thenReturn("true");
+
+		newService().authorizeClient(null);
+	}
+
+	@Test
+	void refreshTokenIsInactive() {
+		String accessToken = jwtService.generateAccessToken(principal);
+		String refreshToken = jwtService.generateRefreshToken(principal, "family-1", "jti-1");
+
+		List<IntrospectionResponse> results = newService().introspectBatch(List.of(accessToken, refreshToken));
+
+		assertThat(results).extracting(IntrospectionResponse::isActive).containsExactly(true, false);
+		assertThat(results.get(0).getTokenType()).isEqualTo(IntrospectionResponse.TOKEN_TYPE_ACCESS);
+		assertThat(results.get(1).getTokenType()).isNull();
+	}
+
+	@Test
+	void refusesVerdictsWhileSigningWithSharedSecret() {
+		String token = jwtService.generateAccessToken(principal);
+
+		assertThatThrownBy(() -> newService().issueVerdict(token))
+				.isInstanceOf(ServiceUnavailableException.class);
+	}
+
+	@Test
+	void refusesVerdictForRefreshToken() {
+		useAsymmetricSigning();
+		String refreshToken = jwtService.generateRefreshToken(principal, "family-1", "jti-1");
+
+		assertThatThrownBy(() -> newService().issueVerdict(refreshToken))
+				.isInstanceOf(UnauthorizedException.class);
+	}
+
+	@Test
+	void verdictIsCappedAndNotAcceptedAsToken() {
+		KeyPair keyPair = useAsymmetricSigning();
+		when(dotenv.get("VERDICT_MAX_TTL_MS", "60000")).thenReturn("30000");
+		String token = jwtService.generateAccessToken(principal);
+
+		VerdictResponse verdict = newService().issueVerdict(token);
+
+		assertThat(verdict.getExp()).isLessThanOrEqualTo(Instant.now().plusSeconds(30).getEpochSecond());
+		assertThat(jwtService.verifyToken(verdict.getVerdict())).isEmpty();
+		// Gateways verify verdicts with the published public key alone
+		assertThat(Jwts.parser().verifyWith(keyPair.getPublic()).build()
+				.parseSignedClaims(verdict.getVerdict()).getPayload().getSubject())
+				.isEqualTo("user@example.com");
+	}
+
+	@Test
+	void refusesVerdictForRevokedToken() {
+		useAsymmetricSigning();
+		String token = jwtService.generateAccessToken(principal);
+		when(blacklistedTokenRepository.existsByTokenId(anyString())).thenReturn(true);
+
+		assertThatThrownBy(() -> newService().issueVerdict(token))
+				.isInstanceOf(UnauthorizedException.class);
+	}
+}
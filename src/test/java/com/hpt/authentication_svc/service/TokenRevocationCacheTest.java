@@ -0,0 +1,109 @@
+package com.hpt.authentication_svc.service;
+
+import com.hpt.authentication_svc.model.BlacklistedToken;
+import com.hpt.authentication_svc.repository.BlacklistedTokenRepository;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * When the Bloom filter, the exact set and Mongo are each consulted, and that a lookup never
+ * trusts an exact set that has lost entries.
+ */
+class TokenRevocationCacheTest {
+
+	private Dotenv dotenv;
+	private BlacklistedTokenRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		dotenv = mock(Dotenv.class);
+		when(dotenv.get(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		repository = mock(BlacklistedTokenRepository.class);
+	}
+
+	@Test
+	void asksMongoUntilFirstLoad() {
+		when(repository.existsByTokenId("jti-1")).thenReturn(true);
+
+		assertThat(new TokenRevocationCache(repository, dotenv).isRevoked("jti-1")).isTrue();
+		verify(repository).existsByTokenId("jti-1");
+	}
+
+	@Test
+	void answersLocallyAfterLoad() {
+		when(repository.findByExpiresAtAfter(any(Instant.class))).thenReturn(List.of(revoked("jti-1")));
+		TokenRevocationCache cache = new TokenRevocationCache(repository, dotenv);
+		cache.rebuild();
+
+		assertThat(cache.isRevoked("jti-1")).isTrue();
+		assertThat(cache.isRevoked("jti-2")).isFalse();
+		verify(repository, never()).existsByTokenId(anyString());
+	}
+
+	@Test
+	void bloomFalsePositiveGoesToMongoUnlessNodeIsCurrent() {
+		// A filter sized for one entry and loaded with hundreds reports nearly everything as present
+		when(dotenv.get("REVOCATION_BLOOM_EXPECTED_INSERTIONS", "100000")).thenReturn("1");
+		List<BlacklistedToken> live = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			live.add(revoked("jti-" + i));
+		}
+		when(repository.findByExpiresAtAfter(any(Instant.class))).thenReturn(live);
+		TokenRevocationCache cache = new TokenRevocationCache(repository, dotenv);
+		cache.rebuild();
+
+		assertThat(cache.isRevoked("not-revoked")).isFalse();
+		verify(repository).existsByTokenId("not-revoked");
+
+		clearInvocations(repository);
+		cache.markCurrentUntil(Instant.now().plusSeconds(60));
+		assertThat(cache.isRevoked("not-revoked")).isFalse();
+		verify(repository, never()).existsByTokenId(anyString());
+	}
+
+	@Test
+	void incompleteExactSetIsNotTrustedDuringRebuild() {
+		when(dotenv.get("REVOCATION_CACHE_MAX_SIZE", "100000")).thenReturn("1");
+		List<BlacklistedToken> live = List.of(revoked("jti-1"), revoked("jti-2"), revoked("jti-3"));
+		when(repository.findByExpiresAtAfter(any(Instant.class))).thenReturn(live);
+		when(repository.existsByTokenId(anyString())).thenReturn(true);
+		TokenRevocationCache cache = new TokenRevocationCache(repository, dotenv);
+		cache.rebuild();
+		cache.markCurrentUntil(Instant.now().plusSeconds(60));
+
+		// Look the tokens up while the next rebuild is reading from Mongo
+		List<Boolean> duringRebuild = new ArrayList<>();
+		when(repository.findByExpiresAtAfter(any(Instant.class))).thenAnswer(invocation -> {
+			live.forEach(token -> duringRebuild.add(cache.isRevoked(token.getTokenId())));
+			return live;
+		});
+		cache.rebuild();
+
+		assertThat(duringRebuild).containsOnly(true);
+		for (BlacklistedToken token : live) {
+			assertThat(cache.isRevoked(token.getTokenId())).isTrue();
+		}
+	}
+
+	private static BlacklistedToken revoked(String tokenId) {
+		return BlacklistedToken.builder()
+				.tokenId(tokenId)
+				.expiresAt(Instant.now().plusSeconds(3600))
+				.blacklistedAt(Instant.now())
+				.build();
+	}
+}
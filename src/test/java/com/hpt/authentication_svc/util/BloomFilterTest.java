@@ -0,0 +1,41 @@
+package com.hpt.authentication_svc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+	@Test
+	void containsEveryInsertedValue() {
+		BloomFilter filter = new BloomFilter(10_000, 0.001);
+		String[] values = new String[10_000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = UUID.randomUUID().toString();
+			filter.put(values[i]);
+		}
+
+		for (String value : values) {
+			assertThat(filter.mightContain(value)).isTrue();
+		}
+	}
+
+	@Test
+	void keepsFalsePositivesNearTargetRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("revoked-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("active-" + i)) {
+				falsePositives++;
+			}
+		}
+
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+}
@@ -0,0 +1,149 @@
+package com.hpt.authentication_svc.util;
+
+import com.hpt.authentication_svc.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+	private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+	private final CircuitBreaker circuitBreaker = new CircuitBreaker("test endpoint", 2, OPEN_DURATION);
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	void opensAfterConsecutiveTransientFailuresAndFailsFast() {
+		fail();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		fail();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		assertThatThrownBy(() -> circuitBreaker.protect(counted(Mono.just("ok"))).block())
+				.isInstanceOf(ServiceUnavailableException.class);
+		assertThat(calls).hasValue(2);
+	}
+
+	@Test
+	void successResetsFailureCount() {
+		fail();
+		succeed();
+		fail();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void successfulTrialCallClosesCircuit() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		succeed();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedTrialCallReopensCircuit() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		fail();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> circuitBreaker.protect(Mono.just("ok")).block())
+				.isInstanceOf(ServiceUnavailableException.class);
+	}
+
+	@Test
+	void onlyOneTrialCallWhileHalfOpen() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		Disposable trial = circuitBreaker.protect(Mono.never()).subscribe();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThatThrownBy(() -> circuitBreaker.protect(Mono.just("ok")).block())
+				.isInstanceOf(ServiceUnavailableException.class);
+		trial.dispose();
+	}
+
+	@Test
+	void clientErrorsCountAsSuccess() {
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> circuitBreaker.protect(Mono.error(
+					WebClientResponseException.create(400, "Bad Request", HttpHeaders.EMPTY, new byte[0],
+							StandardCharsets.UTF_8))).block())
+					.isInstanceOf(WebClientResponseException.class);
+		}
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void cancelledCallsAreNotFailures() {
+		for (int i = 0; i < 5; i++) {
+			circuitBreaker.protect(Mono.never()).subscribe().dispose();
+		}
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void cancelledTrialCallFreesTrialSlot() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+		circuitBreaker.protect(Mono.never()).subscribe().dispose();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		// The next caller becomes the trial call without waiting out another open period
+		succeed();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void classifiesTransientFailures() {
+		assertThat(CircuitBreaker.isTransientFailure(new TimeoutException())).isTrue();
+		assertThat(CircuitBreaker.isTransientFailure(responseException(503))).isTrue();
+		assertThat(CircuitBreaker.isTransientFailure(responseException(429))).isTrue();
+		assertThat(CircuitBreaker.isTransientFailure(responseException(401))).isFalse();
+		assertThat(CircuitBreaker.isTransientFailure(new IllegalStateException())).isFalse();
+	}
+
+	private void open() {
+		fail();
+		fail();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	private void fail() {
+		assertThatThrownBy(() -> circuitBreaker.protect(counted(Mono.error(new TimeoutException()))).block())
+				.hasCauseInstanceOf(TimeoutException.class);
+	}
+
+	private void succeed() {
+		assertThat(circuitBreaker.protect(counted(Mono.just("ok"))).block()).isEqualTo("ok");
+	}
+
+	private <T> Mono<T> counted(Mono<T> call) {
+		return Mono.defer(() -> {
+			calls.incrementAndGet();
+			return call;
+		});
+	}
+
+	private static WebClientResponseException responseException(int status) {
+		return WebClientResponseException.create(status, "status " + status, HttpHeaders.EMPTY, new byte[0],
+				StandardCharsets.UTF_8);
+	}
+}